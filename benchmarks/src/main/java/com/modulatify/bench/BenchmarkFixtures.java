@@ -0,0 +1,53 @@
+package com.modulatify.bench;
+
+import com.modulatify.ConfigManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Builds a self-contained configuration in a temp directory so benchmarks never touch the user's real settings.
+final class BenchmarkFixtures {
+    private BenchmarkFixtures() {
+    }
+    
+    static Path createConfigDirectory() throws IOException {
+        return createConfigDirectory(
+                "network.rate_limit_per_second=1000000",
+                "network.rate_limit_burst=1000000",
+                "dispatch.coalesce_window_ms=0");
+    }
+    
+    static Path createConfigDirectory(String... properties) throws IOException {
+        Path directory = Files.createTempDirectory("modulatify-bench");
+        Files.write(directory.resolve("config.properties"), String.join("\n", properties).getBytes(StandardCharsets.UTF_8));
+        return directory;
+    }
+    
+    static ConfigManager createConfigManager(Path directory) {
+        ConfigManager configManager = new ConfigManager(directory);
+        configManager.loadConfig();
+        configManager.setSpotifyAccessToken("BQDbench-access-token-0123456789abcdefghijklmnopqrstuvwxyz");
+        configManager.setSpotifyRefreshToken("AQBbench-refresh-token-0123456789abcdefghijklmnopqrstuvwxyz");
+        configManager.setTokenExpiresAt(System.currentTimeMillis() + 3_600_000L);
+        return configManager;
+    }
+    
+    static byte[] playerStateJson() throws IOException {
+        try (InputStream in = BenchmarkFixtures.class.getResourceAsStream("/player-state.json")) {
+            if (in == null) {
+                throw new IOException("player-state.json missing from benchmark resources");
+            }
+            return in.readAllBytes();
+        }
+    }
+    
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.modulatify.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// A local stand-in for the Spotify Web API and accounts service. It keeps a single simulated player with two devices
+// and can add latency, 429s (random or from a per-second request cap), 5xx errors and lost devices, so the app can
+// be exercised offline.
+public class FakeSpotifyServer implements AutoCloseable {
+    private static final String[] DEVICE_IDS = {"fake-device-0001", "fake-device-0002"};
+    private static final String[] DEVICE_NAMES = {"Fake Speaker", "Fake Phone"};
+    private static final String[] DEVICE_TYPES = {"Computer", "Smartphone"};
+    private static final int NO_DEVICE = -1;
+    // Returned by applyPlayerRequest for a command that found no active device; sent as a 404 with Spotify's reason.
+    private static final int NO_ACTIVE_DEVICE = -404;
+    private static final int QUEUE_LENGTH = 3;
+    private static final String[] TRACK_IDS = {
+            "0VjIjW4GlUZAMYd2vXMi3b", "7qiZfU4dY1lWllzX7mPBI3", "2Fxmhks0bxGSBdJ92vM42m", "3KkXRkHbMCARz0aVfEt68P",
+            "1zi7xx7UVEFkmKfv06H8x0"};
+    private static final long[] TRACK_DURATIONS_MS = {200040, 233713, 194087, 209438, 182400};
+    
+    static {
+        // Without this the JDK server leaves Nagle on and delayed ACKs add ~40 ms to responses with a body.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+    
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double rateLimitedRatio;
+    private final double serverErrorRatio;
+    private final int maxRequestsPerSecond;
+    private final double deviceDropRatio;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<Integer, LongAdder> responsesByStatus = new ConcurrentHashMap<>();
+    private final AtomicLong tokenCounter = new AtomicLong();
+    
+    private long windowStartNanos;
+    private int requestsInWindow;
+    
+    private int activeDevice = 0;
+    private int offlineDevice = NO_DEVICE;
+    private boolean playing = true;
+    private int volumePercent = 50;
+    private int trackIndex;
+    private long progressMs;
+    private long progressUpdatedNanos = System.nanoTime();
+    
+    // port 0 picks a free port; maxRequestsPerSecond 0 disables the request cap. deviceDropRatio is the chance that a
+    // player command finds the active device gone offline, as when a phone goes to sleep, so the app has to transfer
+    // playback to the other device. A device that dropped comes back when the other one drops.
+    public FakeSpotifyServer(int port, long latencyMs, long jitterMs, double rateLimitedRatio, double serverErrorRatio,
+                             int maxRequestsPerSecond, double deviceDropRatio) throws IOException {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.rateLimitedRatio = rateLimitedRatio;
+        this.serverErrorRatio = serverErrorRatio;
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.deviceDropRatio = deviceDropRatio;
+        
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 128);
+        this.server.createContext("/", this::handle);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-spotify");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(executor);
+    }
+    
+    public static FakeSpotifyServer instant() throws IOException {
+        return new FakeSpotifyServer(0, 0, 0, 0, 0, 0, 0);
+    }
+    
+    public FakeSpotifyServer start() {
+        server.start();
+        return this;
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+    
+    public String getApiBase() {
+        return getBaseUrl() + "/v1";
+    }
+    
+    public long getResponseCount(int status) {
+        LongAdder count = responsesByStatus.get(status);
+        return count == null ? 0 : count.sum();
+    }
+    
+    public long getTotalResponses() {
+        long total = 0;
+        for (LongAdder count : responsesByStatus.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+    
+    public Map<Integer, Long> getResponsesByStatus() {
+        Map<Integer, Long> snapshot = new TreeMap<>();
+        responsesByStatus.forEach((status, count) -> snapshot.put(status, count.sum()));
+        return snapshot;
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            simulateLatency();
+            
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/")) {
+                respond(exchange, 200, null);
+                return;
+            }
+            if (path.equals("/api/token") && method.equals("POST")) {
+                respond(exchange, 200, tokenJson());
+                return;
+            }
+            if (!path.startsWith("/v1/")) {
+                respond(exchange, 404, null);
+                return;
+            }
+            
+            if (isOverRequestCap() || ThreadLocalRandom.current().nextDouble() < rateLimitedRatio) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 429, null);
+                return;
+            }
+            if (ThreadLocalRandom.current().nextDouble() < serverErrorRatio) {
+                respond(exchange, 503, null);
+                return;
+            }
+            
+            String endpoint = path.substring("/v1".length());
+            switch (method + " " + endpoint) {
+                case "GET /me/player/devices":
+                    respond(exchange, 200, devicesJson());
+                    return;
+                case "GET /me/player/queue":
+                    respond(exchange, 200, queueJson());
+                    return;
+                case "PUT /me/player":
+                    respond(exchange, transferPlayback(body), null);
+                    return;
+                default:
+                    break;
+            }
+            
+            String query = exchange.getRequestURI().getQuery();
+            int status = applyPlayerRequest(method, endpoint, query);
+            if (status == 200) {
+                respond(exchange, 200, playerJson());
+            } else if (status == NO_ACTIVE_DEVICE) {
+                respond(exchange, 404, "{\"error\":{\"status\":404,\"message\":\"Player command failed: No active device found\","
+                        + "\"reason\":\"NO_ACTIVE_DEVICE\"}}");
+            } else {
+                respond(exchange, status, null);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    // A player command with a device_id makes that device active first; without one it needs an active device.
+    private int applyPlayerRequest(String method, String endpoint, String query) {
+        synchronized (this) {
+            advanceProgress();
+            if (method.equals("GET") && endpoint.equals("/me/player")) {
+                return activeDevice == NO_DEVICE ? 204 : 200;
+            }
+            if (!endpoint.startsWith("/me/player/")) {
+                return 404;
+            }
+            
+            if (activeDevice != NO_DEVICE && ThreadLocalRandom.current().nextDouble() < deviceDropRatio) {
+                offlineDevice = activeDevice;
+                activeDevice = NO_DEVICE;
+                playing = false;
+            }
+            String deviceId = queryString(query, "device_id");
+            if (deviceId != null) {
+                int device = onlineDeviceIndex(deviceId);
+                if (device == NO_DEVICE) {
+                    return 404;
+                }
+                activeDevice = device;
+            }
+            if (activeDevice == NO_DEVICE) {
+                return NO_ACTIVE_DEVICE;
+            }
+            
+            switch (method + " " + endpoint) {
+                case "PUT /me/player/play":
+                    if (playing) {
+                        return 403;
+                    }
+                    playing = true;
+                    return 204;
+                case "PUT /me/player/pause":
+                    if (!playing) {
+                        return 403;
+                    }
+                    playing = false;
+                    return 204;
+                case "PUT /me/player/volume":
+                    Integer volume = queryInt(query, "volume_percent");
+                    if (volume == null || volume < 0 || volume > 100) {
+                        return 400;
+                    }
+                    volumePercent = volume;
+                    return 204;
+                case "POST /me/player/next":
+                    changeTrack(1);
+                    return 204;
+                case "POST /me/player/previous":
+                    changeTrack(-1);
+                    return 204;
+                default:
+                    return 404;
+            }
+        }
+    }
+    
+    // Handles PUT /me/player with a {"device_ids": [...], "play": ...} body.
+    private int transferPlayback(byte[] body) {
+        JsonNode transfer;
+        try {
+            transfer = objectMapper.readTree(body);
+        } catch (IOException e) {
+            return 400;
+        }
+        JsonNode deviceIds = transfer == null ? null : transfer.get("device_ids");
+        if (deviceIds == null || !deviceIds.isArray() || deviceIds.size() != 1) {
+            return 400;
+        }
+        synchronized (this) {
+            int device = onlineDeviceIndex(deviceIds.get(0).asText());
+            if (device == NO_DEVICE) {
+                return 404;
+            }
+            advanceProgress();
+            activeDevice = device;
+            if (transfer.path("play").asBoolean(false)) {
+                playing = true;
+            }
+        }
+        return 204;
+    }
+    
+    private void respond(HttpExchange exchange, int status, String json) throws IOException {
+        responsesByStatus.computeIfAbsent(status, key -> new LongAdder()).increment();
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    private void simulateLatency() {
+        long delay = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private synchronized boolean isOverRequestCap() {
+        if (maxRequestsPerSecond <= 0) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (now - windowStartNanos >= TimeUnit.SECONDS.toNanos(1)) {
+            windowStartNanos = now;
+            requestsInWindow = 0;
+        }
+        return ++requestsInWindow > maxRequestsPerSecond;
+    }
+    
+    // Must be called with the monitor held.
+    private void advanceProgress() {
+        long now = System.nanoTime();
+        if (playing) {
+            progressMs += TimeUnit.NANOSECONDS.toMillis(now - progressUpdatedNanos);
+            if (progressMs >= TRACK_DURATIONS_MS[trackIndex]) {
+                changeTrack(1);
+            }
+        }
+        progressUpdatedNanos = now;
+    }
+    
+    private void changeTrack(int direction) {
+        trackIndex = Math.floorMod(trackIndex + direction, TRACK_IDS.length);
+        progressMs = 0;
+    }
+    
+    private synchronized String playerJson() {
+        return "{\"device\":" + deviceJson(activeDevice) + ","
+                + "\"shuffle_state\":false,\"repeat_state\":\"off\",\"timestamp\":" + System.currentTimeMillis() + ","
+                + "\"progress_ms\":" + progressMs + ","
+                + "\"item\":" + trackJson(trackIndex) + ","
+                + "\"currently_playing_type\":\"track\",\"is_playing\":" + playing + "}";
+    }
+    
+    private synchronized String devicesJson() {
+        StringBuilder json = new StringBuilder("{\"devices\":[");
+        String separator = "";
+        for (int i = 0; i < DEVICE_IDS.length; i++) {
+            if (i != offlineDevice) {
+                json.append(separator).append(deviceJson(i));
+                separator = ",";
+            }
+        }
+        return json.append("]}").toString();
+    }
+    
+    private synchronized String queueJson() {
+        StringBuilder json = new StringBuilder("{\"currently_playing\":").append(trackJson(trackIndex)).append(",\"queue\":[");
+        for (int i = 1; i <= QUEUE_LENGTH; i++) {
+            json.append(i == 1 ? "" : ",").append(trackJson(Math.floorMod(trackIndex + i, TRACK_IDS.length)));
+        }
+        return json.append("]}").toString();
+    }
+    
+    // Must be called with the monitor held.
+    private String deviceJson(int device) {
+        return "{\"id\":\"" + DEVICE_IDS[device] + "\",\"is_active\":" + (device == activeDevice) + ","
+                + "\"is_restricted\":false,\"name\":\"" + DEVICE_NAMES[device] + "\",\"type\":\"" + DEVICE_TYPES[device] + "\","
+                + "\"volume_percent\":" + volumePercent + "}";
+    }
+    
+    private static String trackJson(int track) {
+        return "{\"id\":\"" + TRACK_IDS[track] + "\",\"name\":\"Track " + (track + 1) + "\","
+                + "\"duration_ms\":" + TRACK_DURATIONS_MS[track] + ",\"type\":\"track\"}";
+    }
+    
+    // Must be called with the monitor held.
+    private int onlineDeviceIndex(String deviceId) {
+        for (int i = 0; i < DEVICE_IDS.length; i++) {
+            if (i != offlineDevice && DEVICE_IDS[i].equals(deviceId)) {
+                return i;
+            }
+        }
+        return NO_DEVICE;
+    }
+    
+    private String tokenJson() {
+        long n = tokenCounter.incrementAndGet();
+        return "{\"access_token\":\"fake-access-" + n + "\",\"token_type\":\"Bearer\","
+                + "\"scope\":\"user-read-playback-state user-modify-playback-state\",\"expires_in\":3600,"
+                + "\"refresh_token\":\"fake-refresh-token\"}";
+    }
+    
+    private static Integer queryInt(String query, String name) {
+        String value = queryString(query, name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static String queryString(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.startsWith(name + "=")) {
+                return pair.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+    
+    // Runs the fake server on its own so the real app can be pointed at it via spotify.api_base / spotify.accounts_base.
+    public static void main(String[] args) throws Exception {
+        HarnessOptions options = HarnessOptions.parse(args);
+        FakeSpotifyServer server = new FakeSpotifyServer(options.getInt("port", 8090), options.getLong("latency-ms", 0),
+                options.getLong("jitter-ms", 0), options.getDouble("429-ratio", 0), options.getDouble("5xx-ratio", 0),
+                options.getInt("server-rps", 0), options.getDouble("device-drop-ratio", 0)).start();
+        System.out.println("Fake Spotify listening on " + server.getBaseUrl());
+        System.out.println("  spotify.api_base=" + server.getApiBase());
+        System.out.println("  spotify.accounts_base=" + server.getBaseUrl());
+        Thread.currentThread().join();
+    }
+}
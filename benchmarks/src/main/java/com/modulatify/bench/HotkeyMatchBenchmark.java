@@ -0,0 +1,120 @@
+package com.modulatify.bench;
+
+import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+import com.modulatify.CommandDispatcher;
+import com.modulatify.ConfigManager;
+import com.modulatify.HotkeyManager;
+import com.modulatify.HotkeyMatcher;
+import com.modulatify.LatencyMetrics;
+import com.modulatify.SpotifyController;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of handling one keystroke on the native hook thread. The hook itself is never registered.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class HotkeyMatchBenchmark {
+    private static final String[] ACTIONS = {"skip_forward", "skip_backward", "play_pause", "volume_down", "volume_up"};
+    
+    private Path configDirectory;
+    private ConfigManager configManager;
+    private HotkeyManager hotkeyManager;
+    private HotkeyMatcher matcher;
+    private NativeKeyEvent plainKey;
+    private int matchingModifiers;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        configDirectory = BenchmarkFixtures.createConfigDirectory();
+        configManager = BenchmarkFixtures.createConfigManager(configDirectory);
+        SpotifyController controller = new SpotifyController(configManager, "http://127.0.0.1:9/v1", "http://127.0.0.1:9");
+        CommandDispatcher dispatcher = new CommandDispatcher(controller, configManager, new LatencyMetrics());
+        hotkeyManager = new HotkeyManager(dispatcher, configManager);
+        
+        Map<String, Integer> keyCodes = new HashMap<>();
+        keyCodes.put("O", NativeKeyEvent.VC_O);
+        keyCodes.put("I", NativeKeyEvent.VC_I);
+        keyCodes.put("P", NativeKeyEvent.VC_P);
+        keyCodes.put("K", NativeKeyEvent.VC_K);
+        keyCodes.put("L", NativeKeyEvent.VC_L);
+        String[] hotkeys = new String[ACTIONS.length];
+        for (int i = 0; i < ACTIONS.length; i++) {
+            hotkeys[i] = configManager.getHotkey(ACTIONS[i]);
+        }
+        matcher = HotkeyMatcher.compile(hotkeys, keyCodes);
+        
+        // An ordinary letter typed in another application: the overwhelmingly common case.
+        plainKey = new NativeKeyEvent(NativeKeyEvent.NATIVE_KEY_PRESSED, 0, 0, NativeKeyEvent.VC_E, NativeKeyEvent.CHAR_UNDEFINED);
+        matchingModifiers = NativeKeyEvent.CTRL_L_MASK | NativeKeyEvent.ALT_L_MASK;
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFixtures.deleteRecursively(configDirectory);
+    }
+    
+    @Benchmark
+    public void nonMatchingKeyPress() {
+        hotkeyManager.nativeKeyPressed(plainKey);
+    }
+    
+    @Benchmark
+    public int matcherHit() {
+        return matcher.match(matchingModifiers, NativeKeyEvent.VC_L);
+    }
+    
+    @Benchmark
+    public int matcherMiss() {
+        return matcher.match(0, NativeKeyEvent.VC_E);
+    }
+    
+    // The string-building matcher HotkeyManager used before hotkeys were compiled, kept as a reference point.
+    @Benchmark
+    public String legacyStringMatch() {
+        String pressedKey = legacyKeyString(plainKey);
+        for (String action : ACTIONS) {
+            String configuredHotkey = configManager.getHotkey(action);
+            if (configuredHotkey != null && configuredHotkey.equals(pressedKey)) {
+                return action;
+            }
+        }
+        return pressedKey;
+    }
+    
+    private static String legacyKeyString(NativeKeyEvent e) {
+        StringBuilder keyString = new StringBuilder();
+        if ((e.getModifiers() & NativeKeyEvent.CTRL_MASK) != 0) {
+            keyString.append("Ctrl+");
+        }
+        if ((e.getModifiers() & NativeKeyEvent.ALT_MASK) != 0) {
+            keyString.append("Alt+");
+        }
+        if ((e.getModifiers() & NativeKeyEvent.SHIFT_MASK) != 0) {
+            keyString.append("Shift+");
+        }
+        if ((e.getModifiers() & NativeKeyEvent.META_MASK) != 0) {
+            keyString.append("Meta+");
+        }
+        keyString.append(NativeKeyEvent.getKeyText(e.getKeyCode()));
+        return keyString.toString();
+    }
+}
@@ -0,0 +1,144 @@
+package com.modulatify.bench;
+
+import com.modulatify.CommandDispatcher;
+import com.modulatify.ConfigManager;
+import com.modulatify.LatencyHistogram;
+import com.modulatify.LatencyMetrics;
+import com.modulatify.SpotifyCommand;
+import com.modulatify.SpotifyController;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Drives synthetic hotkey presses through the real dispatcher and controller against the fake Spotify server,
+// then reports throughput and latency percentiles per command. Runs entirely offline.
+public class LoadHarness {
+    private static final long QUIET_PERIOD_MS = 1_000;
+    private static final long DRAIN_TIMEOUT_MS = 60_000;
+    
+    public static void main(String[] args) throws Exception {
+        HarnessOptions options = HarnessOptions.parse(args);
+        int presses = options.getInt("presses", 5_000);
+        double pressesPerSecond = options.getDouble("rate", 500);
+        long seed = options.getLong("seed", 42);
+        
+        if (!options.getString("verbose", "false").equals("true")) {
+            Logger.getLogger("com.modulatify").setLevel(Level.SEVERE);
+        }
+        
+        try (FakeSpotifyServer server = new FakeSpotifyServer(0, options.getLong("latency-ms", 20),
+                options.getLong("jitter-ms", 10), options.getDouble("429-ratio", 0),
+                options.getDouble("5xx-ratio", 0.01), options.getInt("server-rps", 0),
+                options.getDouble("device-drop-ratio", 0)).start()) {
+            Path configDirectory = BenchmarkFixtures.createConfigDirectory(
+                    "spotify.api_base=" + server.getApiBase(),
+                    "spotify.accounts_base=" + server.getBaseUrl(),
+                    "network.rate_limit_per_second=" + options.getInt("client-rps", 1_000),
+                    "network.rate_limit_burst=" + options.getInt("client-burst", 1_000),
+                    "dispatch.coalesce_window_ms=" + options.getLong("coalesce-ms", 0));
+            ConfigManager configManager = BenchmarkFixtures.createConfigManager(configDirectory);
+            SpotifyController controller = new SpotifyController(configManager);
+            LatencyMetrics metrics = new LatencyMetrics();
+            CommandDispatcher dispatcher = new CommandDispatcher(controller, configManager, metrics);
+            controller.start();
+            
+            try {
+                System.out.printf("Driving %d presses at %s/s against %s%n", presses,
+                        pressesPerSecond > 0 ? String.valueOf(pressesPerSecond) : "max", server.getBaseUrl());
+                long started = System.nanoTime();
+                drive(dispatcher, presses, pressesPerSecond, new Random(seed));
+                long submitted = System.nanoTime();
+                boolean drained = awaitDrain(metrics);
+                long finished = System.nanoTime();
+                
+                report(metrics, server, presses, submitted - started, finished - started, drained);
+            } finally {
+                dispatcher.shutdown();
+                controller.shutdown();
+                BenchmarkFixtures.deleteRecursively(configDirectory);
+            }
+        }
+    }
+    
+    private static void drive(CommandDispatcher dispatcher, int presses, double pressesPerSecond, Random random) {
+        SpotifyCommand[] commands = SpotifyCommand.values();
+        long intervalNanos = pressesPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / pressesPerSecond) : 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < presses; i++) {
+            long due = start + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            dispatcher.submit(commands[random.nextInt(commands.length)], System.nanoTime());
+        }
+    }
+    
+    // Done once no command has started or finished for a quiet period.
+    private static boolean awaitDrain(LatencyMetrics metrics) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MS);
+        long lastCount = -1;
+        long lastChange = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            long count = activity(metrics);
+            if (count != lastCount) {
+                lastCount = count;
+                lastChange = System.nanoTime();
+            } else if (System.nanoTime() - lastChange >= TimeUnit.MILLISECONDS.toNanos(QUIET_PERIOD_MS)) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+    
+    private static long activity(LatencyMetrics metrics) {
+        long count = 0;
+        for (SpotifyCommand command : SpotifyCommand.values()) {
+            count += metrics.get(command, LatencyMetrics.Stage.QUEUE).getCount();
+            count += metrics.get(command, LatencyMetrics.Stage.TOTAL).getCount();
+        }
+        return count;
+    }
+    
+    private static void report(LatencyMetrics metrics, FakeSpotifyServer server, int presses, long submitNanos,
+                               long totalNanos, boolean drained) {
+        // The quiet period is not part of the run.
+        double seconds = Math.max(1e-9, (totalNanos - (drained ? TimeUnit.MILLISECONDS.toNanos(QUIET_PERIOD_MS) : 0)) / 1e9);
+        long started = 0;
+        long completed = 0;
+        for (SpotifyCommand command : SpotifyCommand.values()) {
+            started += metrics.get(command, LatencyMetrics.Stage.QUEUE).getCount();
+            completed += metrics.get(command, LatencyMetrics.Stage.TOTAL).getCount();
+        }
+        
+        System.out.println();
+        System.out.printf("Presses submitted   %d in %.2fs%n", presses, submitNanos / 1e9);
+        System.out.printf("Commands executed   %d (%d presses coalesced or rejected, %d commands dropped as stale)%n",
+                completed, presses - started, started - completed);
+        System.out.printf("Throughput          %.1f presses/s, %.1f commands/s, %.1f requests/s%n",
+                presses / seconds, completed / seconds, server.getTotalResponses() / seconds);
+        StringBuilder statuses = new StringBuilder();
+        for (Map.Entry<Integer, Long> entry : server.getResponsesByStatus().entrySet()) {
+            statuses.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        System.out.println("Server responses   " + statuses);
+        if (!drained) {
+            System.out.println("WARNING: commands were still running after " + DRAIN_TIMEOUT_MS + "ms");
+        }
+        
+        System.out.println();
+        System.out.printf("%-14s %7s %9s %9s %9s %9s %9s%n", "command", "count", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (SpotifyCommand command : SpotifyCommand.values()) {
+            LatencyHistogram total = metrics.get(command, LatencyMetrics.Stage.TOTAL);
+            System.out.printf("%-14s %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n", command.getActionId(), total.getCount(),
+                    total.getPercentileMicros(0.50) / 1000.0, total.getPercentileMicros(0.90) / 1000.0,
+                    total.getPercentileMicros(0.99) / 1000.0, total.getPercentileMicros(0.999) / 1000.0,
+                    total.getMaxMicros() / 1000.0);
+        }
+    }
+}
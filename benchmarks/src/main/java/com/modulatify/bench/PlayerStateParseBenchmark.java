@@ -0,0 +1,42 @@
+package com.modulatify.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.modulatify.PlayerState;
+import com.modulatify.PlayerStateParser;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Parses a realistic ~8 KB /me/player response (full track, album, artists, images and market lists).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerStateParseBenchmark {
+    private byte[] body;
+    private PlayerStateParser parser;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        body = BenchmarkFixtures.playerStateJson();
+        parser = new PlayerStateParser(new ObjectMapper());
+    }
+    
+    @Benchmark
+    public PlayerState parsePlayerState() throws IOException {
+        return parser.parse(new ByteArrayInputStream(body), 0L);
+    }
+}
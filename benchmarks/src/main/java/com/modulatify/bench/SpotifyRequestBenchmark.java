@@ -0,0 +1,120 @@
+package com.modulatify.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.modulatify.CommandContext;
+import com.modulatify.ConfigManager;
+import com.modulatify.SpotifyCommand;
+import com.modulatify.SpotifyController;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Full request path (token check, rate limiter, request building, HTTP exchange) against an in-process loopback stub.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// The stub server must disable Nagle, otherwise delayed ACKs add ~40 ms to every response with a body.
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dsun.net.httpserver.nodelay=true"})
+public class SpotifyRequestBenchmark {
+    private Path configDirectory;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private SpotifyController controller;
+    private byte[] playerState;
+    private byte[] queue;
+    private int volumeSteps = 1;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        configDirectory = BenchmarkFixtures.createConfigDirectory();
+        ConfigManager configManager = BenchmarkFixtures.createConfigManager(configDirectory);
+        playerState = BenchmarkFixtures.playerStateJson();
+        // The queue starts from the playing track, so the controller fetches it once rather than on every state read.
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode queueJson = objectMapper.createObjectNode();
+        queueJson.set("currently_playing", objectMapper.readTree(playerState).get("item"));
+        queueJson.putArray("queue");
+        queue = objectMapper.writeValueAsBytes(queueJson);
+        
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.start();
+        
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        controller = new SpotifyController(configManager, base + "/v1", base);
+        controller.start();
+        controller.refreshPlayerState();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        controller.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        BenchmarkFixtures.deleteRecursively(configDirectory);
+    }
+    
+    @Benchmark
+    public void skipForward() {
+        controller.skip(1, CommandContext.forCommand(SpotifyCommand.SKIP_FORWARD));
+    }
+    
+    // Alternates up and down: a change past 0 or 100 sends no request, so stepping one way would stop measuring one.
+    @Benchmark
+    public void volumeStep() {
+        volumeSteps = -volumeSteps;
+        controller.adjustVolume(volumeSteps, CommandContext.forCommand(
+                volumeSteps > 0 ? SpotifyCommand.VOLUME_UP : SpotifyCommand.VOLUME_DOWN));
+    }
+    
+    @Benchmark
+    public Object refreshPlayerState() throws IOException {
+        return controller.refreshPlayerState();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            exchange.getRequestBody().readAllBytes();
+            String path = exchange.getRequestURI().getPath();
+            byte[] body = null;
+            if ("GET".equals(exchange.getRequestMethod())) {
+                body = path.equals("/v1/me/player") ? playerState : path.equals("/v1/me/player/queue") ? queue : null;
+            }
+            if (body != null) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } else {
+                exchange.sendResponseHeaders(204, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
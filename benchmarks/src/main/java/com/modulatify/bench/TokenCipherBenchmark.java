@@ -0,0 +1,68 @@
+package com.modulatify.bench;
+
+import com.modulatify.ConfigManager;
+import com.modulatify.TokenCipher;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.KeyGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenCipherBenchmark {
+    private static final String TOKEN = "BQDbench-access-token-0123456789abcdefghijklmnopqrstuvwxyz-"
+            + "0123456789abcdefghijklmnopqrstuvwxyz0123456789abcdefghijklmnopqrstuvwxyz0123456789";
+    
+    private Path configDirectory;
+    private ConfigManager configManager;
+    private TokenCipher cipher;
+    private String encrypted;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        configDirectory = BenchmarkFixtures.createConfigDirectory();
+        configManager = BenchmarkFixtures.createConfigManager(configDirectory);
+        
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(256);
+        cipher = new TokenCipher(keyGenerator.generateKey());
+        encrypted = cipher.encrypt(TOKEN);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkFixtures.deleteRecursively(configDirectory);
+    }
+    
+    // What every API call pays to read the access token.
+    @Benchmark
+    public String getAccessToken() {
+        return configManager.getSpotifyAccessToken();
+    }
+    
+    @Benchmark
+    public String encrypt() throws GeneralSecurityException {
+        return cipher.encrypt(TOKEN);
+    }
+    
+    @Benchmark
+    public String decrypt() throws GeneralSecurityException {
+        return cipher.decrypt(encrypted);
+    }
+}
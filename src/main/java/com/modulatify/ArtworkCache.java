@@ -0,0 +1,318 @@
+package com.modulatify;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Cover art for the tray and the settings window. The memory tier is a small LRU of images already scaled to the
+// size they are drawn at, so a track change costs no decoding; the disk tier under the config directory keeps one
+// DISK_SIZE PNG per image, read through a memory mapping and evicted least recently used past its byte budget.
+// Only the smallest Spotify rendition is ever downloaded, and art for queued tracks is fetched ahead of time.
+public class ArtworkCache {
+    private static final Log logger = Log.get(ArtworkCache.class);
+    
+    public static final int DISK_SIZE = 64;
+    private static final int MAX_MEMORY_ENTRIES = 64;
+    private static final long DOWNLOAD_TIMEOUT_MS = 10_000;
+    // Eviction frees a little more than needed so it does not run on every write.
+    private static final double EVICT_TO_RATIO = 0.9;
+    
+    private final Path directory;
+    private final OkHttpClient httpClient;
+    private final long diskBudgetBytes;
+    private final ExecutorService executor;
+    private final Map<String, BufferedImage> memory = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+            return size() > MAX_MEMORY_ENTRIES;
+        }
+    };
+    private final Map<String, CompletableFuture<BufferedImage>> inFlight = new ConcurrentHashMap<>();
+    private final Object diskLock = new Object();
+    // Guarded by diskLock; measured on the first write.
+    private long diskBytes = -1;
+    
+    public ArtworkCache(Path directory, OkHttpClient httpClient, long diskBudgetBytes) {
+        this.directory = directory;
+        this.httpClient = httpClient.newBuilder()
+                .callTimeout(DOWNLOAD_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .build();
+        this.diskBudgetBytes = diskBudgetBytes;
+        this.executor = Executors.newFixedThreadPool(2, new NamedThreadFactory("modulatify-artwork"));
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    // The image if it is already in memory at this size, else null; never blocks, so it is safe on the EDT.
+    public BufferedImage getCached(String url, int size) {
+        if (url == null) {
+            return null;
+        }
+        synchronized (memory) {
+            return memory.get(key(url, size));
+        }
+    }
+    
+    // Completes with the image scaled to size, or null if there is no artwork or it could not be fetched.
+    public CompletableFuture<BufferedImage> load(String url, int size) {
+        BufferedImage cached = getCached(url, size);
+        if (cached != null || url == null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        BufferedImage source = getCached(url, DISK_SIZE);
+        if (source != null) {
+            return CompletableFuture.completedFuture(remember(url, size, scale(source, size)));
+        }
+        return loadSource(url).thenApply(loaded -> loaded == null ? null : remember(url, size, scale(loaded, size)));
+    }
+    
+    // Warms both tiers for art that is likely to be shown soon, e.g. for queued tracks.
+    public void prefetch(List<String> urls, int... sizes) {
+        for (String url : urls) {
+            for (int size : sizes) {
+                load(url, size);
+            }
+        }
+    }
+    
+    // The DISK_SIZE image from disk, or downloaded and stored; concurrent loads of one URL share a single fetch.
+    private CompletableFuture<BufferedImage> loadSource(String url) {
+        CompletableFuture<BufferedImage> source = inFlight.computeIfAbsent(url, key -> {
+            CompletableFuture<BufferedImage> future = new CompletableFuture<>();
+            try {
+                executor.execute(() -> {
+                    try {
+                        BufferedImage image = readFromDisk(url);
+                        if (image == null) {
+                            image = download(url);
+                            if (image != null) {
+                                image = scale(image, DISK_SIZE);
+                                writeToDisk(url, image);
+                            }
+                        }
+                        future.complete(image == null ? null : remember(url, DISK_SIZE, image));
+                    } catch (Exception e) {
+                        logger.fine("Failed to load artwork {}: {}", url, e.getMessage());
+                        future.complete(null);
+                    } finally {
+                        inFlight.remove(key, future);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // The map must not be modified from inside computeIfAbsent; the entry is removed below.
+                future.complete(null);
+            }
+            return future;
+        });
+        if (source.isDone()) {
+            // Rejected after shutdown; do not keep serving the failed load.
+            inFlight.remove(url, source);
+        }
+        return source;
+    }
+    
+    private BufferedImage remember(String url, int size, BufferedImage image) {
+        synchronized (memory) {
+            memory.put(key(url, size), image);
+        }
+        return image;
+    }
+    
+    private BufferedImage download(String url) throws IOException {
+        Request request = new Request.Builder().url(url).get().build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                logger.fine("Artwork download failed: {} for {}", response.code(), url);
+                return null;
+            }
+            return ImageIO.read(response.body().byteStream());
+        }
+    }
+    
+    private BufferedImage readFromDisk(String url) throws IOException {
+        Path file = fileFor(url);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        BufferedImage image;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            image = ImageIO.read(new ByteBufferInputStream(mapped));
+        }
+        if (image == null) {
+            Files.deleteIfExists(file);
+            return null;
+        }
+        // The modification time doubles as the last-used time for eviction.
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        return image;
+    }
+    
+    private void writeToDisk(String url, BufferedImage image) {
+        synchronized (diskLock) {
+            try {
+                Files.createDirectories(directory);
+                if (diskBytes < 0) {
+                    diskBytes = measureDisk();
+                }
+                Path file = fileFor(url);
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    ImageIO.write(image, "png", out);
+                }
+                long size = Files.size(temp);
+                // A cover written again (e.g. after a corrupt read raced a download) replaces its old file.
+                long replaced = Files.exists(file) ? Files.size(file) : 0;
+                try {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+                diskBytes += size - replaced;
+                if (diskBytes > diskBudgetBytes) {
+                    evict();
+                }
+            } catch (IOException e) {
+                logger.warning("Failed to store artwork: {}", e.getMessage());
+            }
+        }
+    }
+    
+    // Must be called with diskLock held. Deletes the least recently used files until well under budget.
+    // A file still mapped by a reader may refuse deletion on Windows; it is simply retried on the next eviction.
+    private void evict() throws IOException {
+        List<Path> files = listFiles();
+        files.sort(Comparator.comparing(ArtworkCache::lastModified));
+        long target = (long) (diskBudgetBytes * EVICT_TO_RATIO);
+        for (Path file : files) {
+            if (diskBytes <= target) {
+                break;
+            }
+            try {
+                long size = Files.size(file);
+                Files.delete(file);
+                diskBytes -= size;
+            } catch (IOException e) {
+                logger.fine("Could not evict {}: {}", file.getFileName(), e.getMessage());
+            }
+        }
+        logger.fine("Artwork cache trimmed to {} bytes", diskBytes);
+    }
+    
+    private long measureDisk() throws IOException {
+        long total = 0;
+        for (Path file : listFiles()) {
+            total += Files.size(file);
+        }
+        return total;
+    }
+    
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            List<Path> files = new ArrayList<>();
+            entries.filter(file -> file.getFileName().toString().endsWith(".png")).forEach(files::add);
+            return files;
+        }
+    }
+    
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+    
+    private Path fileFor(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + 4);
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return directory.resolve(name.append(".png").toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static String key(String url, int size) {
+        return size + ":" + url;
+    }
+    
+    // Halves repeatedly before the last bilinear step, which keeps downscaled covers sharp without area averaging.
+    static BufferedImage scale(BufferedImage image, int size) {
+        BufferedImage current = image;
+        while (current.getWidth() != size || current.getHeight() != size) {
+            int width = current.getWidth() / 2 >= size ? current.getWidth() / 2 : size;
+            int height = current.getHeight() / 2 >= size ? current.getHeight() / 2 : size;
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = next.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(current, 0, 0, width, height, null);
+            g2d.dispose();
+            current = next;
+        }
+        return current;
+    }
+    
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+        
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+        
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
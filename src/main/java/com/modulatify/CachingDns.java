@@ -0,0 +1,73 @@
+package com.modulatify;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Dns;
+
+// Caches lookups for the handful of Spotify hosts; a stale answer is served if a re-resolve fails.
+public class CachingDns implements Dns {
+    private static final Log logger = Log.get(CachingDns.class);
+    
+    private static final long TTL_NANOS = TimeUnit.MINUTES.toNanos(5);
+    
+    private final Dns delegate;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    
+    public CachingDns() {
+        this(Dns.SYSTEM);
+    }
+    
+    public CachingDns(Dns delegate) {
+        this.delegate = delegate;
+    }
+    
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        Entry entry = cache.get(hostname);
+        if (entry != null && System.nanoTime() - entry.expiresAtNanos < 0) {
+            return entry.addresses;
+        }
+        return resolve(hostname, entry);
+    }
+    
+    // Re-resolves a host ahead of expiry so the lookup never happens on a command's critical path.
+    public void refresh(String hostname) {
+        try {
+            resolve(hostname, cache.get(hostname));
+        } catch (UnknownHostException e) {
+            logger.fine("DNS refresh failed for {}: {}", hostname, e.getMessage());
+        }
+    }
+    
+    public void clear() {
+        cache.clear();
+    }
+    
+    private List<InetAddress> resolve(String hostname, Entry previous) throws UnknownHostException {
+        try {
+            List<InetAddress> addresses = List.copyOf(delegate.lookup(hostname));
+            cache.put(hostname, new Entry(addresses, System.nanoTime() + TTL_NANOS));
+            return addresses;
+        } catch (UnknownHostException e) {
+            if (previous != null) {
+                logger.fine("Using stale DNS entry for {}", hostname);
+                return previous.addresses;
+            }
+            throw e;
+        }
+    }
+    
+    private static final class Entry {
+        private final List<InetAddress> addresses;
+        private final long expiresAtNanos;
+        
+        private Entry(List<InetAddress> addresses, long expiresAtNanos) {
+            this.addresses = addresses;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
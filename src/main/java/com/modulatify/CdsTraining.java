@@ -0,0 +1,56 @@
+package com.modulatify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Training run for the fast-startup build profile. It walks the start-up path (key and config I/O, token
+// encryption, OkHttp and Jackson set-up, hotkey compilation) without a display, native hook or network access,
+// so -XX:ArchiveClassesAtExit captures the classes a real launch loads.
+public final class CdsTraining {
+    private static final String SAMPLE_PLAYER_STATE = "{\"device\":{\"id\":\"training\",\"volume_percent\":50},"
+            + "\"progress_ms\":1000,\"item\":{\"id\":\"track\",\"duration_ms\":200000},\"is_playing\":true}";
+    private static final String SAMPLE_TOKEN = "{\"access_token\":\"a\",\"expires_in\":3600,\"refresh_token\":\"r\"}";
+    
+    private CdsTraining() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        long start = System.nanoTime();
+        Path configDir = Files.createTempDirectory("modulatify-cds");
+        try {
+            ConfigManager configManager = new ConfigManager(configDir);
+            configManager.loadConfig();
+            configManager.setSpotifyAccessToken("training-access-token");
+            configManager.setSpotifyRefreshToken("training-refresh-token");
+            configManager.saveConfig();
+            
+            ConfigManager reloaded = new ConfigManager(configDir);
+            reloaded.loadConfig();
+            reloaded.getSpotifyAccessToken();
+            
+            SpotifyController controller = new SpotifyController(reloaded);
+            LatencyMetrics latencyMetrics = new LatencyMetrics();
+            CommandDispatcher dispatcher = new CommandDispatcher(controller, reloaded, latencyMetrics);
+            new HotkeyManager(dispatcher, reloaded).updateHotkeys();
+            
+            ObjectMapper objectMapper = new ObjectMapper();
+            new PlayerStateParser(objectMapper).parse(
+                    new ByteArrayInputStream(SAMPLE_PLAYER_STATE.getBytes(StandardCharsets.UTF_8)), System.nanoTime());
+            TokenResponse.parse(objectMapper.getFactory(), new ByteArrayInputStream(SAMPLE_TOKEN.getBytes(StandardCharsets.UTF_8)));
+            latencyMetrics.toPrometheus();
+            
+            dispatcher.shutdown();
+            controller.shutdown();
+        } finally {
+            try (Stream<Path> paths = Files.walk(configDir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        System.out.println("Start-up path completed in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,178 @@
+package com.modulatify;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Guards one Spotify host. Closed, it lets everything through and tracks the outcome of the last few calls; once too
+// many of them failed or were slow it opens and rejects calls immediately instead of letting each press wait out a
+// dead connection. After the open period a single trial call (a press or a background probe) is let through
+// half-open: success closes the breaker, failure opens it again.
+public class CircuitBreaker {
+    private static final Log logger = Log.get(CircuitBreaker.class);
+    
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+    
+    // Thrown instead of sending a request while the breaker is open.
+    public static class OpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+        
+        public OpenException(String host) {
+            super("Circuit open for " + host);
+        }
+    }
+    
+    private final String host;
+    private final boolean[] failures;
+    private final int minimumCalls;
+    private final double failureRatio;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int next;
+    private int calls;
+    private int failed;
+    private long openUntilNanos;
+    private boolean trialInFlight;
+    private volatile Consumer<State> stateListener;
+    
+    public CircuitBreaker(String host, int windowSize, int minimumCalls, double failureRatio, long slowCallMillis,
+                          long openMillis) {
+        this.host = host;
+        this.failures = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, failures.length));
+        this.failureRatio = failureRatio;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+    
+    public static CircuitBreaker fromConfig(String host, ConfigManager configManager) {
+        return new CircuitBreaker(host, configManager.getBreakerWindowSize(), configManager.getBreakerMinimumCalls(),
+                configManager.getBreakerFailureRatio(), configManager.getBreakerSlowCallMillis(),
+                configManager.getBreakerOpenMillis());
+    }
+    
+    public String getHost() {
+        return host;
+    }
+    
+    public long getOpenMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(openNanos);
+    }
+    
+    public synchronized State getState() {
+        return state;
+    }
+    
+    // Whether a call may go ahead now; when it returns true, the outcome must be reported with onResult.
+    public boolean tryAcquire() {
+        synchronized (this) {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.nanoTime() - openUntilNanos < 0) {
+                        return false;
+                    }
+                    state = State.HALF_OPEN;
+                    trialInFlight = true;
+                    break;
+                default:
+                    if (trialInFlight) {
+                        return false;
+                    }
+                    trialInFlight = true;
+                    return true;
+            }
+        }
+        logger.info("Circuit half-open for {}, sending a trial request", host);
+        notifyListener(State.HALF_OPEN);
+        return true;
+    }
+    
+    // A call failed when Spotify could not be reached, answered with a server error, or took too long.
+    public void onResult(boolean success, long latencyNanos) {
+        boolean failure = !success || latencyNanos > slowCallNanos;
+        State changed = null;
+        boolean trial;
+        synchronized (this) {
+            trial = state == State.HALF_OPEN;
+            if (trial) {
+                trialInFlight = false;
+                changed = failure ? open() : close();
+            } else if (state == State.CLOSED) {
+                if (calls == failures.length) {
+                    failed -= failures[next] ? 1 : 0;
+                } else {
+                    calls++;
+                }
+                failures[next] = failure;
+                failed += failure ? 1 : 0;
+                next = (next + 1) % failures.length;
+                if (calls >= minimumCalls && failed >= failureRatio * calls) {
+                    changed = open();
+                }
+            }
+        }
+        if (changed == State.OPEN && trial) {
+            logger.fine("Trial request to {} failed, circuit stays open", host);
+        } else if (changed == State.OPEN) {
+            logger.warning("Circuit open for {}: failing requests fast for {}ms", host, getOpenMillis());
+        } else if (changed == State.CLOSED) {
+            logger.info("Circuit closed for {}", host);
+        }
+        if (changed != null) {
+            notifyListener(changed);
+        }
+    }
+    
+    // Reports a call that ended with an I/O error. A timeout that struck before the call counted as slow came from
+    // the caller's own deadline (the call timeout is the command's remaining budget), not from the host, so it is
+    // not held against the host; it only frees a half-open trial for the next call.
+    public void onFailure(IOException error, long latencyNanos) {
+        if (error instanceof InterruptedIOException && latencyNanos <= slowCallNanos) {
+            release();
+        } else {
+            onResult(false, latencyNanos);
+        }
+    }
+    
+    // Gives back a permit from tryAcquire without recording an outcome.
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+    
+    public void setStateListener(Consumer<State> stateListener) {
+        this.stateListener = stateListener;
+    }
+    
+    // Must be called with the monitor held.
+    private State open() {
+        state = State.OPEN;
+        openUntilNanos = System.nanoTime() + openNanos;
+        return State.OPEN;
+    }
+    
+    // Must be called with the monitor held.
+    private State close() {
+        state = State.CLOSED;
+        next = 0;
+        calls = 0;
+        failed = 0;
+        return State.CLOSED;
+    }
+    
+    private void notifyListener(State state) {
+        Consumer<State> listener = stateListener;
+        if (listener != null) {
+            listener.accept(state);
+        }
+    }
+}
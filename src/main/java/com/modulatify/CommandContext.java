@@ -0,0 +1,59 @@
+package com.modulatify;
+
+import java.util.concurrent.TimeUnit;
+
+// Carries a command's latency budget and stage timings through queueing, token checks and HTTP calls.
+public final class CommandContext {
+    private final SpotifyCommand command;
+    private final long createdNanos;
+    private final long deadlineNanos;
+    private long tokenNanos;
+    private long httpNanos;
+    
+    public CommandContext(SpotifyCommand command, long createdNanos, long deadlineNanos) {
+        this.command = command;
+        this.createdNanos = createdNanos;
+        this.deadlineNanos = deadlineNanos;
+    }
+    
+    public static CommandContext forCommand(SpotifyCommand command) {
+        long now = System.nanoTime();
+        return new CommandContext(command, now, now + TimeUnit.MILLISECONDS.toNanos(command.getLatencyBudgetMillis()));
+    }
+    
+    public SpotifyCommand getCommand() {
+        return command;
+    }
+    
+    public String getName() {
+        return command.getActionId();
+    }
+    
+    public long getCreatedNanos() {
+        return createdNanos;
+    }
+    
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+    
+    public boolean isExpired() {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+    
+    public void addTokenNanos(long nanos) {
+        tokenNanos += nanos;
+    }
+    
+    public long getTokenNanos() {
+        return tokenNanos;
+    }
+    
+    public void addHttpNanos(long nanos) {
+        httpNanos += nanos;
+    }
+    
+    public long getHttpNanos() {
+        return httpNanos;
+    }
+}
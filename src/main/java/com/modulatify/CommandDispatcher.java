@@ -0,0 +1,246 @@
+package com.modulatify;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class CommandDispatcher {
+    private static final Log logger = Log.get(CommandDispatcher.class);
+    
+    private static final int MAX_PENDING_PER_LANE = 64;
+    
+    private final SpotifyController spotifyController;
+    private final ConfigManager configManager;
+    private final RateLimiter rateLimiter;
+    private final LatencyMetrics latencyMetrics;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Lane[] lanes;
+    
+    public CommandDispatcher(SpotifyController spotifyController, ConfigManager configManager,
+                             LatencyMetrics latencyMetrics) {
+        this.spotifyController = spotifyController;
+        this.configManager = configManager;
+        this.rateLimiter = spotifyController.getRateLimiter();
+        this.latencyMetrics = latencyMetrics;
+        
+        SpotifyCommand.Resource[] resources = SpotifyCommand.Resource.values();
+        this.executor = new ScheduledThreadPoolExecutor(resources.length, new NamedThreadFactory("modulatify-dispatch"));
+        this.executor.setRemoveOnCancelPolicy(true);
+        
+        this.lanes = new Lane[resources.length];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+    }
+    
+    // Called on the native hook thread: only enqueues, never blocks on I/O.
+    public void submit(SpotifyCommand command) {
+        submit(command, System.nanoTime());
+    }
+    
+    // eventNanos is the System.nanoTime() at which the triggering key event was received.
+    public void submit(SpotifyCommand command, long eventNanos) {
+        lanes[command.getResource().ordinal()].add(command, eventNanos);
+    }
+    
+    private void execute(PendingCommand pending) {
+        FlightEvents.CommandDispatched event = new FlightEvents.CommandDispatched();
+        event.begin();
+        if (pending.presses > 1) {
+            logger.fine("Coalesced {} {} presses into net {}", pending.presses, pending.kind, pending.amount);
+        }
+        
+        CommandContext context = pending.toContext();
+        long queueNanos = System.nanoTime() - context.getCreatedNanos();
+        latencyMetrics.record(context.getCommand(), LatencyMetrics.Stage.QUEUE, queueNanos);
+        if (context.isExpired()) {
+            logger.warning("Dropping stale {} command: latency budget exceeded while queued", context.getName());
+            commit(event, pending, context, queueNanos, true);
+            return;
+        }
+        
+        try {
+            switch (pending.kind) {
+                case SKIP:
+                    if (pending.amount != 0) {
+                        spotifyController.skip(pending.amount, context);
+                    }
+                    break;
+                case TOGGLE:
+                    if (pending.amount % 2 != 0) {
+                        spotifyController.togglePlayPause(context);
+                    }
+                    break;
+                case VOLUME:
+                    if (pending.amount != 0) {
+                        spotifyController.adjustVolume(pending.amount, context);
+                    }
+                    break;
+                default:
+                    logger.warning("Unsupported command kind: {}", pending.kind);
+            }
+        } catch (Exception e) {
+            logger.warning("Command {} failed: {}", pending.kind, e.getMessage());
+        }
+        
+        SpotifyCommand command = context.getCommand();
+        latencyMetrics.record(command, LatencyMetrics.Stage.TOKEN, context.getTokenNanos());
+        latencyMetrics.record(command, LatencyMetrics.Stage.HTTP, context.getHttpNanos());
+        latencyMetrics.record(command, LatencyMetrics.Stage.TOTAL, System.nanoTime() - context.getCreatedNanos());
+        commit(event, pending, context, queueNanos, false);
+    }
+    
+    private static void commit(FlightEvents.CommandDispatched event, PendingCommand pending, CommandContext context,
+                               long queueNanos, boolean expired) {
+        if (event.shouldCommit()) {
+            event.action = context.getName();
+            event.presses = pending.presses;
+            event.amount = pending.amount;
+            event.queueTime = queueNanos;
+            event.tokenTime = context.getTokenNanos();
+            event.expired = expired;
+            event.commit();
+        }
+    }
+    
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(2, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static class PendingCommand {
+        private final SpotifyCommand.Kind kind;
+        private final SpotifyCommand command;
+        private final long budgetNanos;
+        private final long firstPressNanos;
+        private long lastPressNanos;
+        private int amount;
+        private int presses;
+        
+        private PendingCommand(SpotifyCommand command, long pressNanos) {
+            this.kind = command.getKind();
+            this.command = command;
+            this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(command.getLatencyBudgetMillis());
+            this.firstPressNanos = pressNanos;
+            this.lastPressNanos = pressNanos;
+            this.amount = command.getDelta();
+            this.presses = 1;
+        }
+        
+        private void fold(SpotifyCommand command, long pressNanos) {
+            amount += command.getDelta();
+            presses++;
+            lastPressNanos = pressNanos;
+        }
+        
+        // The budget runs from the latest folded press, since that is the one the user is waiting on.
+        private CommandContext toContext() {
+            return new CommandContext(command, firstPressNanos, lastPressNanos + budgetNanos);
+        }
+    }
+    
+    // A lane holds runs of pending commands in order; a press of the same kind as the tail run is folded into it.
+    // The first press on an idle lane is dispatched at once; presses that arrive while a run is in flight, or within
+    // the coalesce window after the last dispatch, are held and folded until the window closes.
+    private class Lane implements Runnable {
+        private final ArrayDeque<PendingCommand> runs = new ArrayDeque<>();
+        private boolean scheduled;
+        private long windowEndNanos;
+        private boolean windowOpen;
+        
+        private void add(SpotifyCommand command, long now) {
+            synchronized (this) {
+                PendingCommand tail = runs.peekLast();
+                if (tail != null && tail.kind == command.getKind()) {
+                    tail.fold(command, now);
+                    recordEnqueued(command, true, false);
+                } else if (runs.size() < MAX_PENDING_PER_LANE) {
+                    runs.addLast(new PendingCommand(command, now));
+                    recordEnqueued(command, false, false);
+                } else {
+                    logger.warning("Command queue full, dropping {}", command.getActionId());
+                    recordEnqueued(command, false, true);
+                    return;
+                }
+                
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+                scheduleFlush(windowRemainingMillis(now));
+            }
+        }
+        
+        // Must be called with the lane lock held.
+        private void recordEnqueued(SpotifyCommand command, boolean folded, boolean dropped) {
+            FlightEvents.CommandEnqueued event = new FlightEvents.CommandEnqueued();
+            if (event.isEnabled()) {
+                event.action = command.getActionId();
+                event.folded = folded;
+                event.dropped = dropped;
+                event.queuedRuns = runs.size();
+                event.commit();
+            }
+        }
+        
+        // Must be called with the lane lock held.
+        private long windowRemainingMillis(long now) {
+            if (!windowOpen || now - windowEndNanos >= 0) {
+                windowOpen = false;
+                return 0;
+            }
+            return TimeUnit.NANOSECONDS.toMillis(windowEndNanos - now) + 1;
+        }
+        
+        // Must be called with the lane lock held.
+        private void scheduleFlush(long delayMs) {
+            try {
+                executor.schedule(this, delayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                scheduled = false;
+            }
+        }
+        
+        @Override
+        public void run() {
+            while (true) {
+                PendingCommand next;
+                synchronized (this) {
+                    if (runs.isEmpty()) {
+                        scheduled = false;
+                        return;
+                    }
+                    
+                    // Presses that arrived after the in-flight run completed keep folding until the window closes.
+                    long now = System.nanoTime();
+                    long windowMs = windowRemainingMillis(now);
+                    if (windowMs > 0) {
+                        scheduleFlush(windowMs);
+                        return;
+                    }
+                    
+                    // While throttled, hold the queue so further presses keep folding into the pending runs.
+                    long throttleMs = rateLimiter.delayMillis(1);
+                    if (throttleMs > 0) {
+                        logger.info("Holding {} queued command(s) for {}ms: {}", runs.size(), throttleMs,
+                                rateLimiter.getStatus());
+                        scheduleFlush(throttleMs);
+                        return;
+                    }
+                    next = runs.pollFirst();
+                    windowEndNanos = now + TimeUnit.MILLISECONDS.toNanos(configManager.getCoalesceWindowMillis());
+                    windowOpen = true;
+                }
+                execute(next);
+            }
+        }
+    }
+}
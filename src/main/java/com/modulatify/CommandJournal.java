@@ -0,0 +1,200 @@
+package com.modulatify;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Commands that could not reach Spotify, kept until the connection is back. There is at most one entry per command
+// kind, collapsed as commands arrive: volume keeps the latest target, play/pause the latest wanted state, and
+// skips their net count. Entries replay oldest-first and expire after their kind's age limit.
+// On disk it is an append-only log (one line per recorded command) that is compacted whenever entries are removed.
+public class CommandJournal {
+    private static final Log logger = Log.get(CommandJournal.class);
+    
+    // Appended lines beyond which the log is compacted even though nothing was replayed, e.g. during a long outage.
+    private static final int MAX_APPENDED_LINES = 64;
+    
+    public static final class Entry {
+        private final SpotifyCommand.Kind kind;
+        private final int value;
+        private final long recordedAtMillis;
+        
+        private Entry(SpotifyCommand.Kind kind, int value, long recordedAtMillis) {
+            this.kind = kind;
+            this.value = value;
+            this.recordedAtMillis = recordedAtMillis;
+        }
+        
+        public SpotifyCommand.Kind getKind() {
+            return kind;
+        }
+        
+        // Net skips (negative = backward), 1 to play / 0 to pause, or the target volume percent.
+        public int getValue() {
+            return value;
+        }
+        
+        public long getRecordedAtMillis() {
+            return recordedAtMillis;
+        }
+        
+        @Override
+        public String toString() {
+            return kind + " " + value;
+        }
+    }
+    
+    private final Path journalFile;
+    private final Map<SpotifyCommand.Kind, Entry> entries = new LinkedHashMap<>();
+    private volatile boolean empty = true;
+    private int appendedLines;
+    
+    public CommandJournal(Path journalFile) {
+        this.journalFile = journalFile;
+    }
+    
+    // Replays the on-disk log through the same collapsing rules, drops expired entries and compacts the file.
+    public synchronized void load() {
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(journalFile, StandardCharsets.UTF_8)) {
+                String[] fields = line.trim().split(" ");
+                if (fields.length != 3) {
+                    continue;
+                }
+                try {
+                    merge(SpotifyCommand.Kind.valueOf(fields[1]), Integer.parseInt(fields[2]), Long.parseLong(fields[0]));
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Skipping corrupt journal line: {}", line);
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to read command journal: {}", e.getMessage());
+        }
+        dropExpired(System.currentTimeMillis());
+        compact();
+        if (!entries.isEmpty()) {
+            logger.info("Restored {} pending command(s) from the journal", entries.size());
+        }
+    }
+    
+    public boolean isEmpty() {
+        return empty;
+    }
+    
+    public synchronized void record(SpotifyCommand.Kind kind, int value) {
+        long now = System.currentTimeMillis();
+        Entry entry = merge(kind, value, now);
+        logger.info("Journaled {} until Spotify is reachable", entry);
+        if (++appendedLines > MAX_APPENDED_LINES) {
+            compact();
+        } else {
+            append(now + " " + kind + " " + value + "\n");
+        }
+    }
+    
+    // The oldest live entry, dropping any that have outlived their kind's age limit; null when nothing is pending.
+    public synchronized Entry peek() {
+        if (dropExpired(System.currentTimeMillis())) {
+            compact();
+        }
+        return entries.isEmpty() ? null : entries.values().iterator().next();
+    }
+    
+    // Removes the entry once replayed, unless a newer command of the same kind has replaced it meanwhile.
+    public synchronized void complete(Entry entry) {
+        if (entries.get(entry.kind) == entry) {
+            entries.remove(entry.kind);
+            compact();
+        }
+    }
+    
+    // A command of this kind just reached Spotify live, which makes any journaled one obsolete.
+    public synchronized void supersede(SpotifyCommand.Kind kind) {
+        if (entries.remove(kind) != null) {
+            compact();
+        }
+    }
+    
+    // Must be called with the monitor held.
+    private Entry merge(SpotifyCommand.Kind kind, int value, long recordedAtMillis) {
+        Entry previous = entries.remove(kind);
+        int merged = value;
+        if (kind == SpotifyCommand.Kind.SKIP && previous != null) {
+            merged += previous.value;
+        }
+        Entry entry = new Entry(kind, merged, recordedAtMillis);
+        if (kind != SpotifyCommand.Kind.SKIP || merged != 0) {
+            entries.put(kind, entry);
+        }
+        empty = entries.isEmpty();
+        return entry;
+    }
+    
+    // Must be called with the monitor held.
+    private boolean dropExpired(long nowMillis) {
+        boolean dropped = false;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (nowMillis - entry.recordedAtMillis > entry.kind.getJournalMaxAgeMillis()) {
+                logger.info("Dropping journaled {}: older than {}ms", entry, entry.kind.getJournalMaxAgeMillis());
+                it.remove();
+                dropped = true;
+            }
+        }
+        empty = entries.isEmpty();
+        return dropped;
+    }
+    
+    // Must be called with the monitor held.
+    private void append(String line) {
+        try {
+            Files.createDirectories(journalFile.getParent());
+            try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to append to command journal: {}", e.getMessage());
+        }
+    }
+    
+    // Must be called with the monitor held. Rewrites the log as one line per live entry, or deletes it when empty.
+    private void compact() {
+        empty = entries.isEmpty();
+        appendedLines = entries.size();
+        try {
+            if (entries.isEmpty()) {
+                Files.deleteIfExists(journalFile);
+                return;
+            }
+            List<String> lines = new ArrayList<>(entries.size());
+            for (Entry entry : entries.values()) {
+                lines.add(entry.recordedAtMillis + " " + entry.kind + " " + entry.value);
+            }
+            Path temp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to compact command journal: {}", e.getMessage());
+        }
+    }
+}
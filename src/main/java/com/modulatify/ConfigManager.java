@@ -1,37 +1,58 @@
 package com.modulatify;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Locale;
 import java.util.Properties;
-import java.util.logging.Logger;
-import javax.crypto.Cipher;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
-import java.util.Base64;
-import java.security.SecureRandom;
 
 public class ConfigManager {
-    private static final Logger logger = Logger.getLogger(ConfigManager.class.getName());
+    private static final Log logger = Log.get(ConfigManager.class);
     
-    private static final String CONFIG_DIR = System.getProperty("user.home") + "\\AppData\\Roaming\\Modulatify";
-    private static final String CONFIG_FILE = CONFIG_DIR + "\\config.properties";
-    private static final String KEY_FILE = CONFIG_DIR + "\\key.dat";
+    private static final Path DEFAULT_CONFIG_DIR = Paths.get(System.getProperty("user.home"), "AppData", "Roaming", "Modulatify");
+    
+    private final Path configDir;
+    private final Path configFile;
+    private final Path keyFile;
     
     private Properties config;
     private SecretKey encryptionKey;
+    private TokenCipher tokenCipher;
+    private final Credential accessToken = new Credential("spotify.access_token");
+    private final Credential refreshToken = new Credential("spotify.refresh_token");
+    private final AtomicLong version = new AtomicLong();
+    private long savedVersion;
+    private volatile Runnable changeListener;
     
     public ConfigManager() {
+        this(DEFAULT_CONFIG_DIR);
+    }
+    
+    public ConfigManager(Path configDir) {
+        this.configDir = configDir;
+        this.configFile = configDir.resolve("config.properties");
+        this.keyFile = configDir.resolve("key.dat");
         this.config = new Properties();
         initializeEncryptionKey();
+        this.tokenCipher = new TokenCipher(encryptionKey);
         setDefaultValues();
     }
     
     private void initializeEncryptionKey() {
         try {
-            Path keyPath = Paths.get(KEY_FILE);
+            Path keyPath = keyFile;
             if (Files.exists(keyPath)) {
                 byte[] keyBytes = Files.readAllBytes(keyPath);
                 encryptionKey = new SecretKeySpec(keyBytes, "AES");
@@ -40,11 +61,11 @@ public class ConfigManager {
                 keyGen.init(256);
                 encryptionKey = keyGen.generateKey();
                 
-                Files.createDirectories(Paths.get(CONFIG_DIR));
+                Files.createDirectories(configDir);
                 Files.write(keyPath, encryptionKey.getEncoded());
             }
         } catch (Exception e) {
-            logger.severe("Failed to initialize encryption key: " + e.getMessage());
+            logger.severe("Failed to initialize encryption key: {}", e.getMessage());
             throw new RuntimeException("Encryption initialization failed", e);
         }
     }
@@ -55,33 +76,101 @@ public class ConfigManager {
         config.setProperty("hotkey.play_pause", "Ctrl+Alt+P");
         config.setProperty("hotkey.volume_down", "Ctrl+Alt+K");
         config.setProperty("hotkey.volume_up", "Ctrl+Alt+L");
+        config.setProperty("hotkey.chord_timeout_ms", "1500");
+        for (SpotifyCommand command : SpotifyCommand.values()) {
+            config.setProperty("repeat." + command.getActionId(),
+                    command.getDefaultRepeatPolicy().name().toLowerCase(Locale.ROOT));
+        }
+        config.setProperty("repeat.ramp_initial_delay_ms", "300");
+        config.setProperty("repeat.ramp_interval_ms", "200");
+        config.setProperty("repeat.ramp_min_interval_ms", "60");
+        config.setProperty("repeat.ramp_acceleration", "0.8");
+        config.setProperty("repeat.ramp_max_steps", "20");
+        config.setProperty("dispatch.coalesce_window_ms", "60");
+        config.setProperty("network.rate_limit_per_second", "5");
+        config.setProperty("network.rate_limit_burst", "10");
+        config.setProperty("network.breaker_window", "20");
+        config.setProperty("network.breaker_min_calls", "5");
+        config.setProperty("network.breaker_failure_ratio", "0.5");
+        config.setProperty("network.breaker_slow_call_ms", "1000");
+        config.setProperty("network.breaker_open_ms", "5000");
+        config.setProperty("ui.now_playing_notifications", "true");
+        config.setProperty("ui.tray_artwork", "true");
+        config.setProperty("artwork.disk_budget_mb", "20");
+        config.setProperty("control.enabled", "false");
+        config.setProperty("control.port", "17878");
+        config.setProperty("control.token", "");
         config.setProperty("spotify.access_token", "");
         config.setProperty("spotify.refresh_token", "");
         config.setProperty("spotify.token_expires_at", "0");
+        config.setProperty("spotify.last_device_id", "");
     }
     
     public void loadConfig() {
         try {
-            Path configPath = Paths.get(CONFIG_FILE);
+            Path configPath = configFile;
             if (Files.exists(configPath)) {
-                try (FileInputStream fis = new FileInputStream(CONFIG_FILE)) {
+                try (FileInputStream fis = new FileInputStream(configFile.toFile())) {
                     config.load(fis);
+                    accessToken.reset();
+                    refreshToken.reset();
                     logger.info("Configuration loaded successfully");
                 }
             } else {
                 logger.info("No existing configuration found, using defaults");
             }
         } catch (IOException e) {
-            logger.warning("Failed to load configuration: " + e.getMessage());
+            logger.warning("Failed to load configuration: {}", e.getMessage());
         }
     }
     
-    public void saveConfig() throws IOException {
-        Files.createDirectories(Paths.get(CONFIG_DIR));
-        try (FileOutputStream fos = new FileOutputStream(CONFIG_FILE)) {
-            config.store(fos, "Modulatify Configuration");
-            logger.info("Configuration saved successfully");
+    // Writes the configuration if it changed since the last save. The file is replaced atomically, so a crash
+    // mid-write leaves the previous version intact.
+    public synchronized void saveConfig() throws IOException {
+        long current = version.get();
+        if (current == savedVersion) {
+            return;
+        }
+        
+        encryptForStorage(accessToken);
+        encryptForStorage(refreshToken);
+        ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        config.store(contents, "Modulatify Configuration");
+        
+        Files.createDirectories(configDir);
+        Path temp = configFile.resolveSibling(configFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(contents.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
         }
+        try {
+            Files.move(temp, configFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, configFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        savedVersion = current;
+        logger.info("Configuration saved successfully");
+    }
+    
+    // Called after every change to persisted state; ConfigPersister uses it to schedule a write.
+    public void setChangeListener(Runnable changeListener) {
+        this.changeListener = changeListener;
+    }
+    
+    private void markChanged() {
+        version.incrementAndGet();
+        Runnable listener = changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+    
+    public Path getConfigDirectory() {
+        return configDir;
     }
     
     public String getHotkey(String action) {
@@ -89,70 +178,253 @@ public class ConfigManager {
     }
     
     public void setHotkey(String action, String hotkey) {
-        config.setProperty("hotkey." + action, hotkey);
+        Object previous = config.setProperty("hotkey." + action, hotkey);
+        if (!hotkey.equals(previous)) {
+            markChanged();
+        }
     }
     
-    public String getSpotifyAccessToken() {
-        String encryptedToken = config.getProperty("spotify.access_token");
-        if (encryptedToken == null || encryptedToken.isEmpty()) {
-            return "";
+    // Unset in normal use; set to point the app at another server (e.g. the fake Spotify in the benchmarks module).
+    public String getSpotifyApiBase(String defaultValue) {
+        return config.getProperty("spotify.api_base", defaultValue).trim();
+    }
+    
+    public String getSpotifyAccountsBase(String defaultValue) {
+        return config.getProperty("spotify.accounts_base", defaultValue).trim();
+    }
+    
+    // How long a chord such as "Ctrl+Alt+M, V" waits for its next stroke.
+    public long getChordTimeoutMillis() {
+        return getLong("hotkey.chord_timeout_ms", 1500);
+    }
+    
+    public RepeatPolicy getRepeatPolicy(SpotifyCommand command) {
+        return RepeatPolicy.fromConfig(config.getProperty("repeat." + command.getActionId()),
+                command.getDefaultRepeatPolicy());
+    }
+    
+    public long getRampInitialDelayMillis() {
+        return getLong("repeat.ramp_initial_delay_ms", 300);
+    }
+    
+    public long getRampIntervalMillis() {
+        return getLong("repeat.ramp_interval_ms", 200);
+    }
+    
+    public long getRampMinIntervalMillis() {
+        return getLong("repeat.ramp_min_interval_ms", 60);
+    }
+    
+    // Each ramp interval is the previous one times this factor, so values below 1 accelerate.
+    public double getRampAcceleration() {
+        try {
+            double acceleration = Double.parseDouble(config.getProperty("repeat.ramp_acceleration", "0.8").trim());
+            return acceleration > 0 && acceleration <= 1 ? acceleration : 0.8;
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for repeat.ramp_acceleration, using 0.8");
+            return 0.8;
         }
-        return decryptToken(encryptedToken);
     }
     
-    public void setSpotifyAccessToken(String token) {
-        if (token == null || token.isEmpty()) {
-            config.setProperty("spotify.access_token", "");
-        } else {
-            config.setProperty("spotify.access_token", encryptToken(token));
+    public int getRampMaxSteps() {
+        return (int) getLong("repeat.ramp_max_steps", 20);
+    }
+    
+    public long getCoalesceWindowMillis() {
+        return getLong("dispatch.coalesce_window_ms", 60);
+    }
+    
+    public double getRateLimitPerSecond() {
+        return getLong("network.rate_limit_per_second", 5);
+    }
+    
+    public double getRateLimitBurst() {
+        return getLong("network.rate_limit_burst", 10);
+    }
+    
+    // Number of recent calls per host the circuit breaker judges the failure ratio over.
+    public int getBreakerWindowSize() {
+        return (int) getLong("network.breaker_window", 20);
+    }
+    
+    public int getBreakerMinimumCalls() {
+        return (int) getLong("network.breaker_min_calls", 5);
+    }
+    
+    public double getBreakerFailureRatio() {
+        try {
+            double ratio = Double.parseDouble(config.getProperty("network.breaker_failure_ratio", "0.5").trim());
+            return ratio > 0 && ratio <= 1 ? ratio : 0.5;
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for network.breaker_failure_ratio, using 0.5");
+            return 0.5;
         }
     }
     
-    public String getSpotifyRefreshToken() {
-        String encryptedToken = config.getProperty("spotify.refresh_token");
-        if (encryptedToken == null || encryptedToken.isEmpty()) {
-            return "";
+    // Calls slower than this count as failures.
+    public long getBreakerSlowCallMillis() {
+        return getLong("network.breaker_slow_call_ms", 1000);
+    }
+    
+    public long getBreakerOpenMillis() {
+        return getLong("network.breaker_open_ms", 5000);
+    }
+    
+    // When off, the playing track still shows in the tray tooltip but skips raise no notification.
+    public boolean isNowPlayingNotificationsEnabled() {
+        return Boolean.parseBoolean(config.getProperty("ui.now_playing_notifications", "true").trim());
+    }
+    
+    // Shows the playing track's cover as the tray icon instead of the Modulatify logo.
+    public boolean isTrayArtworkEnabled() {
+        return Boolean.parseBoolean(config.getProperty("ui.tray_artwork", "true").trim());
+    }
+    
+    public long getArtworkDiskBudgetBytes() {
+        return getLong("artwork.disk_budget_mb", 20) * 1024 * 1024;
+    }
+    
+    // The loopback control server always runs in headless mode; with the tray it is opt-in.
+    public boolean isControlServerEnabled() {
+        return Boolean.parseBoolean(config.getProperty("control.enabled", "false").trim());
+    }
+    
+    public int getControlPort() {
+        return (int) getLong("control.port", 17878);
+    }
+    
+    // Without a token any local user or process could drive playback, so one is generated on first use and stored.
+    public synchronized String getControlToken() {
+        String token = config.getProperty("control.token", "").trim();
+        if (token.isEmpty()) {
+            byte[] bytes = new byte[24];
+            new SecureRandom().nextBytes(bytes);
+            token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+            config.setProperty("control.token", token);
+            markChanged();
+            logger.info("Generated a control token; it is stored as control.token in {}", configFile);
         }
-        return decryptToken(encryptedToken);
+        return token;
     }
     
-    public void setSpotifyRefreshToken(String token) {
-        if (token == null || token.isEmpty()) {
-            config.setProperty("spotify.refresh_token", "");
-        } else {
-            config.setProperty("spotify.refresh_token", encryptToken(token));
+    private long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(config.getProperty(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for {}, using {}", key, defaultValue);
+            return defaultValue;
         }
     }
     
+    public String getSpotifyAccessToken() {
+        return readCredential(accessToken);
+    }
+    
+    public void setSpotifyAccessToken(String token) {
+        accessToken.set(token);
+        markChanged();
+    }
+    
+    public String getSpotifyRefreshToken() {
+        return readCredential(refreshToken);
+    }
+    
+    public void setSpotifyRefreshToken(String token) {
+        refreshToken.set(token);
+        markChanged();
+    }
+    
     public long getTokenExpiresAt() {
         return Long.parseLong(config.getProperty("spotify.token_expires_at", "0"));
     }
     
     public void setTokenExpiresAt(long expiresAt) {
         config.setProperty("spotify.token_expires_at", String.valueOf(expiresAt));
+        markChanged();
     }
     
-    private String encryptToken(String token) {
-        try {
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey);
-            byte[] encrypted = cipher.doFinal(token.getBytes());
-            return Base64.getEncoder().encodeToString(encrypted);
-        } catch (Exception e) {
-            logger.severe("Failed to encrypt token: " + e.getMessage());
-            return token;
+    // The Spotify Connect device that was last seen playing, woken when no device is active; empty if none yet.
+    public String getLastDeviceId() {
+        return config.getProperty("spotify.last_device_id", "").trim();
+    }
+    
+    public void setLastDeviceId(String deviceId) {
+        Object previous = config.setProperty("spotify.last_device_id", deviceId);
+        if (!deviceId.equals(previous)) {
+            markChanged();
+        }
+    }
+    
+    // Decrypts the stored value once; afterwards the plaintext is served from memory until the token is replaced.
+    private String readCredential(Credential credential) {
+        String value = credential.plaintext;
+        if (value != null) {
+            return value;
+        }
+        
+        synchronized (credential) {
+            if (credential.plaintext == null) {
+                String stored = config.getProperty(credential.propertyKey);
+                credential.plaintext = decryptToken(stored);
+                credential.dirty = !credential.plaintext.isEmpty() && TokenCipher.isLegacy(stored);
+                if (credential.dirty) {
+                    // Re-encrypt the legacy value with GCM on the next write.
+                    markChanged();
+                }
+            }
+            return credential.plaintext;
+        }
+    }
+    
+    private void encryptForStorage(Credential credential) {
+        synchronized (credential) {
+            if (!credential.dirty) {
+                return;
+            }
+            String value = credential.plaintext;
+            if (value == null || value.isEmpty()) {
+                config.setProperty(credential.propertyKey, "");
+            } else {
+                try {
+                    config.setProperty(credential.propertyKey, tokenCipher.encrypt(value));
+                } catch (Exception e) {
+                    logger.severe("Failed to encrypt token: {}", e.getMessage());
+                    return;
+                }
+            }
+            credential.dirty = false;
         }
     }
     
     private String decryptToken(String encryptedToken) {
+        if (encryptedToken == null || encryptedToken.isEmpty()) {
+            return "";
+        }
         try {
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.DECRYPT_MODE, encryptionKey);
-            byte[] decrypted = cipher.doFinal(Base64.getDecoder().decode(encryptedToken));
-            return new String(decrypted);
+            return tokenCipher.decrypt(encryptedToken);
         } catch (Exception e) {
-            logger.severe("Failed to decrypt token: " + e.getMessage());
+            logger.severe("Failed to decrypt token: {}", e.getMessage());
             return "";
         }
     }
+    
+    private static final class Credential {
+        private final String propertyKey;
+        private volatile String plaintext;
+        private volatile boolean dirty;
+        
+        private Credential(String propertyKey) {
+            this.propertyKey = propertyKey;
+        }
+        
+        private synchronized void set(String token) {
+            plaintext = token == null ? "" : token;
+            dirty = true;
+        }
+        
+        private synchronized void reset() {
+            plaintext = null;
+            dirty = false;
+        }
+    }
 }
\ No newline at end of file
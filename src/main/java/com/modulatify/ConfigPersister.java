@@ -0,0 +1,67 @@
+package com.modulatify;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Write-behind for ConfigManager: changes are batched and written on a background thread once they settle,
+// so neither the EDT nor a token refresh ever waits on the disk.
+public class ConfigPersister {
+    private static final Log logger = Log.get(ConfigPersister.class);
+    
+    private static final long DEBOUNCE_MS = 500;
+    private static final long MAX_DELAY_MS = 5_000;
+    
+    private final ConfigManager configManager;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private ScheduledFuture<?> pendingWrite;
+    private long firstChangeNanos;
+    
+    public ConfigPersister(ConfigManager configManager) {
+        this.configManager = configManager;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("modulatify-config"));
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+    
+    public void start() {
+        configManager.setChangeListener(this::onConfigChanged);
+    }
+    
+    // Writes anything still pending before returning; called at shutdown.
+    public void stop() {
+        configManager.setChangeListener(null);
+        scheduler.shutdownNow();
+        write();
+    }
+    
+    // Each change pushes the write back by DEBOUNCE_MS, but a steady stream of changes is still written every MAX_DELAY_MS.
+    private synchronized void onConfigChanged() {
+        long now = System.nanoTime();
+        if (pendingWrite == null) {
+            firstChangeNanos = now;
+        } else {
+            pendingWrite.cancel(false);
+        }
+        
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(now - firstChangeNanos);
+        long delayMs = Math.max(0, Math.min(DEBOUNCE_MS, MAX_DELAY_MS - waitedMs));
+        try {
+            pendingWrite = scheduler.schedule(this::write, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            pendingWrite = null;
+        }
+    }
+    
+    private void write() {
+        synchronized (this) {
+            pendingWrite = null;
+        }
+        try {
+            configManager.saveConfig();
+        } catch (IOException e) {
+            logger.warning("Failed to save configuration: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.modulatify;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Keeps a live HTTP/2 connection to each Spotify host so the first press after idle skips DNS, TCP and TLS setup.
+public class ConnectionWarmer {
+    private static final Log logger = Log.get(ConnectionWarmer.class);
+    
+    private static final long KEEP_ALIVE_INTERVAL_MS = 60_000;
+    private static final long RESUME_THRESHOLD_MS = 2 * KEEP_ALIVE_INTERVAL_MS;
+    private static final long PROBE_TIMEOUT_MS = 5_000;
+    
+    private final OkHttpClient httpClient;
+    private final CachingDns dns;
+    private final List<HttpUrl> probeUrls = new ArrayList<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Set<CircuitBreaker> probing = ConcurrentHashMap.newKeySet();
+    
+    private long lastTickNanos;
+    private long lastTickMillis;
+    private int networkFingerprint;
+    
+    public ConnectionWarmer(OkHttpClient httpClient, CachingDns dns, String... baseUrls) {
+        // Probes must not follow redirects off the host whose connection they are keeping warm.
+        this.httpClient = httpClient.newBuilder()
+                .followRedirects(false)
+                .callTimeout(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .build();
+        this.dns = dns;
+        for (String baseUrl : baseUrls) {
+            HttpUrl url = HttpUrl.get(baseUrl);
+            probeUrls.add(url.newBuilder().encodedPath("/").build());
+        }
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("modulatify-warmer"));
+    }
+    
+    public void start() {
+        networkFingerprint = computeNetworkFingerprint();
+        lastTickNanos = System.nanoTime();
+        lastTickMillis = System.currentTimeMillis();
+        scheduler.execute(this::warm);
+        scheduler.scheduleWithFixedDelay(this::tick, KEEP_ALIVE_INTERVAL_MS, KEEP_ALIVE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+    
+    // While the breaker is open, probes its host after every open period so it can close without waiting for a press.
+    public void probeUntilClosed(String baseUrl, CircuitBreaker breaker) {
+        if (probing.add(breaker)) {
+            scheduleProbe(HttpUrl.get(baseUrl).newBuilder().encodedPath("/").build(), breaker);
+        }
+    }
+    
+    private void scheduleProbe(HttpUrl url, CircuitBreaker breaker) {
+        try {
+            scheduler.schedule(() -> probe(url, breaker), breaker.getOpenMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            probing.remove(breaker);
+        }
+    }
+    
+    private void probe(HttpUrl url, CircuitBreaker breaker) {
+        if (breaker.getState() == CircuitBreaker.State.CLOSED) {
+            probing.remove(breaker);
+            return;
+        }
+        if (breaker.tryAcquire()) {
+            long start = System.nanoTime();
+            Request request = new Request.Builder().url(url).head().build();
+            try (Response response = httpClient.newCall(request).execute()) {
+                // Any answer short of a server error means the host is back, whatever the probe path returns.
+                breaker.onResult(response.code() < 500, System.nanoTime() - start);
+            } catch (IOException e) {
+                logger.fine("Probe to {} failed: {}", url.host(), e.getMessage());
+                breaker.onFailure(e, System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                logger.fine("Probe to {} failed: {}", url.host(), e.getMessage());
+                breaker.onResult(false, System.nanoTime() - start);
+            }
+        }
+        if (breaker.getState() == CircuitBreaker.State.CLOSED) {
+            probing.remove(breaker);
+        } else {
+            scheduleProbe(url, breaker);
+        }
+    }
+    
+    private void tick() {
+        long nowNanos = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        long gapMs = Math.max(TimeUnit.NANOSECONDS.toMillis(nowNanos - lastTickNanos), nowMillis - lastTickMillis);
+        lastTickNanos = nowNanos;
+        lastTickMillis = nowMillis;
+        
+        int fingerprint = computeNetworkFingerprint();
+        if (gapMs > RESUME_THRESHOLD_MS || fingerprint != networkFingerprint) {
+            logger.info("Network change or resume detected, re-establishing Spotify connections");
+            networkFingerprint = fingerprint;
+            httpClient.connectionPool().evictAll();
+            dns.clear();
+        }
+        warm();
+    }
+    
+    private void warm() {
+        for (HttpUrl url : probeUrls) {
+            dns.refresh(url.host());
+            Request request = new Request.Builder().url(url).head().build();
+            try (Response response = httpClient.newCall(request).execute()) {
+                logger.fine("Keep-alive probe {}: {} over {}", url.host(), response.code(), response.protocol());
+            } catch (Exception e) {
+                logger.fine("Keep-alive probe to {} failed: {}", url.host(), e.getMessage());
+            }
+        }
+    }
+    
+    private static int computeNetworkFingerprint() {
+        try {
+            List<String> addresses = new ArrayList<>();
+            for (NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                if (!networkInterface.isUp() || networkInterface.isLoopback()) {
+                    continue;
+                }
+                for (InetAddress address : Collections.list(networkInterface.getInetAddresses())) {
+                    addresses.add(networkInterface.getName() + "/" + address.getHostAddress());
+                }
+            }
+            Collections.sort(addresses);
+            return addresses.hashCode();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+}
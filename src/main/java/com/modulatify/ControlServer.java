@@ -0,0 +1,217 @@
+package com.modulatify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Loopback HTTP control channel for scripts and stream-deck style tools, and the only input in headless mode.
+//   POST /command/<action>   submit one command, e.g. /command/skip_forward
+//   POST /commands           submit a batch: action ids separated by whitespace or commas, applied in order
+//   GET  /status             player, token, rate-limit and connection state as JSON
+//   GET  /metrics            latency histograms in Prometheus text format
+// Commands go through the same dispatcher as hotkeys, so they are coalesced and rate limited the same way.
+// Connections are kept alive, so clients can pipeline requests on one socket.
+public class ControlServer {
+    private static final Log logger = Log.get(ControlServer.class);
+    
+    private static final int MAX_BATCH_BYTES = 16 * 1024;
+    
+    static {
+        // Nagle would hold back small responses behind delayed ACKs, which pipelining clients feel directly.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+    
+    private final CommandDispatcher commandDispatcher;
+    private final SpotifyController spotifyController;
+    private final LatencyMetrics latencyMetrics;
+    private final int port;
+    private final byte[] expectedAuthorization;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HttpServer server;
+    private ExecutorService executor;
+    
+    // Requests need "Authorization: Bearer <token>"; an empty token is refused, since it would open playback
+    // control to every local user and process.
+    public ControlServer(CommandDispatcher commandDispatcher, SpotifyController spotifyController,
+                         LatencyMetrics latencyMetrics, int port, String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("The control server needs a token");
+        }
+        this.commandDispatcher = commandDispatcher;
+        this.spotifyController = spotifyController;
+        this.latencyMetrics = latencyMetrics;
+        this.port = port;
+        this.expectedAuthorization = ("Bearer " + token).getBytes(StandardCharsets.UTF_8);
+    }
+    
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", this::handle);
+        executor = Executors.newFixedThreadPool(2, new NamedThreadFactory("modulatify-control"));
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Control server listening on http://127.0.0.1:{}", getPort());
+    }
+    
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        long receivedNanos = System.nanoTime();
+        try {
+            String rejection = checkCaller(exchange);
+            if (rejection != null) {
+                respond(exchange, 403, error(rejection));
+                return;
+            }
+            
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            if (path.startsWith("/command/") && method.equals("POST")) {
+                exchange.getRequestBody().readAllBytes();
+                submit(exchange, List.of(path.substring("/command/".length())), receivedNanos);
+            } else if (path.equals("/commands") && method.equals("POST")) {
+                byte[] body = exchange.getRequestBody().readNBytes(MAX_BATCH_BYTES + 1);
+                if (body.length > MAX_BATCH_BYTES) {
+                    respond(exchange, 413, error("Batch larger than " + MAX_BATCH_BYTES + " bytes"));
+                    return;
+                }
+                submit(exchange, splitActions(new String(body, StandardCharsets.UTF_8)), receivedNanos);
+            } else if (path.equals("/status") && method.equals("GET")) {
+                respond(exchange, 200, status());
+            } else if (path.equals("/metrics") && method.equals("GET")) {
+                byte[] body = latencyMetrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } else {
+                respond(exchange, 404, error("Unknown endpoint " + method + " " + path));
+            }
+        } catch (IOException e) {
+            logger.fine("Control request failed: {}", e.getMessage());
+        } finally {
+            // HttpExchange is only AutoCloseable from JDK 14.
+            exchange.close();
+        }
+    }
+    
+    // Loopback alone does not stop a web page in the user's browser from posting here (or DNS rebinding onto it),
+    // so browser-originated requests and foreign Host headers are refused.
+    private String checkCaller(HttpExchange exchange) {
+        if (exchange.getRequestHeaders().containsKey("Origin")) {
+            return "Browser requests are not accepted";
+        }
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host != null && !isLoopbackHost(host)) {
+            return "Unexpected Host header";
+        }
+        // Compared in constant time, so response timing does not reveal how much of a guess was right.
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null
+                || !MessageDigest.isEqual(expectedAuthorization, authorization.getBytes(StandardCharsets.UTF_8))) {
+            return "Missing or wrong control token";
+        }
+        return null;
+    }
+    
+    private static boolean isLoopbackHost(String host) {
+        String name = host.startsWith("[") ? host.substring(0, host.indexOf(']') + 1) : host.split(":", 2)[0];
+        return name.equals("127.0.0.1") || name.equalsIgnoreCase("localhost") || name.equals("[::1]");
+    }
+    
+    // The whole batch is rejected if any action is unknown, so a typo never applies half a sequence.
+    private void submit(HttpExchange exchange, List<String> actionIds, long receivedNanos) throws IOException {
+        List<SpotifyCommand> commands = new ArrayList<>(actionIds.size());
+        for (String actionId : actionIds) {
+            SpotifyCommand command = SpotifyCommand.fromActionId(actionId);
+            if (command == null) {
+                respond(exchange, 400, error("Unknown action " + actionId));
+                return;
+            }
+            commands.add(command);
+        }
+        
+        for (SpotifyCommand command : commands) {
+            commandDispatcher.submit(command, receivedNanos);
+        }
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("accepted", commands.size());
+        respond(exchange, 202, result);
+    }
+    
+    private static List<String> splitActions(String body) {
+        List<String> actionIds = new ArrayList<>();
+        for (String part : body.split("[\\s,]+")) {
+            if (!part.isEmpty()) {
+                actionIds.add(part);
+            }
+        }
+        return actionIds;
+    }
+    
+    private ObjectNode status() {
+        ObjectNode status = objectMapper.createObjectNode();
+        status.put("authenticated", spotifyController.isAuthenticated());
+        status.put("rate_limit", spotifyController.getRateLimiter().getStatus());
+        status.put("connection", spotifyController.getConnectionStatus());
+        
+        PlayerState state = spotifyController.getPlayerStateCache().get();
+        if (state != null) {
+            ObjectNode player = status.putObject("player");
+            long now = System.nanoTime();
+            player.put("is_playing", state.isPlaying());
+            player.put("device_id", state.getDeviceId());
+            if (state.getVolumePercent() != PlayerState.UNKNOWN_VOLUME) {
+                player.put("volume_percent", state.getVolumePercent());
+            }
+            player.put("item_id", state.getItemId());
+            player.put("progress_ms", state.getEstimatedProgressMs(now));
+            player.put("age_ms", (now - state.getFetchedAtNanos()) / 1_000_000);
+        }
+        
+        // May run ahead of the cached state right after a skip.
+        Track nowPlaying = spotifyController.getNowPlaying().getCurrent();
+        if (nowPlaying != null) {
+            status.put("now_playing", nowPlaying.describe());
+        }
+        return status;
+    }
+    
+    private ObjectNode error(String message) {
+        ObjectNode error = objectMapper.createObjectNode();
+        error.put("error", message);
+        return error;
+    }
+    
+    private void respond(HttpExchange exchange, int status, ObjectNode json) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(json);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.modulatify;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Knows which Spotify Connect device commands should go to, so they can name it with device_id instead of leaving
+// Spotify to resolve one. Follows the active device from every player state read, remembers the last one across
+// restarts, and caches /me/player/devices for a short while to pick a device to wake when none is active.
+public class DeviceRegistry {
+    private static final Log logger = Log.get(DeviceRegistry.class);
+    
+    private static final long DEVICE_LIST_TTL_MS = 60_000;
+    
+    public static final class Device {
+        private final String id;
+        private final String name;
+        private final boolean active;
+        private final boolean restricted;
+        
+        public Device(String id, String name, boolean active, boolean restricted) {
+            this.id = id;
+            this.name = name;
+            this.active = active;
+            this.restricted = restricted;
+        }
+        
+        public String getId() {
+            return id;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public boolean isActive() {
+            return active;
+        }
+        
+        // Restricted devices (e.g. some speakers) accept no Web API commands.
+        public boolean isRestricted() {
+            return restricted;
+        }
+    }
+    
+    private final ConfigManager configManager;
+    private volatile String activeDeviceId;
+    private volatile List<Device> devices;
+    private volatile long devicesFetchedAtNanos;
+    
+    public DeviceRegistry(ConfigManager configManager) {
+        this.configManager = configManager;
+    }
+    
+    // The active device if one is known, otherwise the last one used; null if there has never been one.
+    public String getTargetDeviceId() {
+        String active = activeDeviceId;
+        if (active != null) {
+            return active;
+        }
+        String last = configManager.getLastDeviceId();
+        return last.isEmpty() ? null : last;
+    }
+    
+    public boolean hasActiveDevice() {
+        return activeDeviceId != null;
+    }
+    
+    // Called with every player state read from Spotify.
+    public void onPlayerState(PlayerState state) {
+        if (state.hasActiveDevice()) {
+            onDeviceActivated(state.getDeviceId());
+        } else {
+            activeDeviceId = null;
+        }
+    }
+    
+    // Called when a device became active, seen in a player state or after transferring playback to it.
+    public void onDeviceActivated(String deviceId) {
+        String previous = activeDeviceId;
+        activeDeviceId = deviceId;
+        if (deviceId.equals(previous)) {
+            return;
+        }
+        logger.info("Active Spotify device is now {}", deviceId);
+        configManager.setLastDeviceId(deviceId);
+        if (!isListed(deviceId)) {
+            invalidateDevices();
+        }
+    }
+    
+    // Spotify reported that no device is active, whatever the last player state said.
+    public void onNoActiveDevice() {
+        activeDeviceId = null;
+    }
+    
+    // The cached device list, or null once it is older than its TTL.
+    public List<Device> getDevices() {
+        List<Device> cached = devices;
+        if (cached == null || System.nanoTime() - devicesFetchedAtNanos > TimeUnit.MILLISECONDS.toNanos(DEVICE_LIST_TTL_MS)) {
+            return null;
+        }
+        return cached;
+    }
+    
+    public void updateDevices(List<Device> devices) {
+        this.devicesFetchedAtNanos = System.nanoTime();
+        this.devices = devices;
+    }
+    
+    public void invalidateDevices() {
+        devices = null;
+    }
+    
+    // The device the list marks active and that accepts commands, other than the one that just failed; null if none.
+    public static Device findActive(List<Device> available, String failedDeviceId) {
+        if (available == null) {
+            return null;
+        }
+        for (Device device : available) {
+            if (device.isActive() && !device.isRestricted() && !device.getId().equals(failedDeviceId)) {
+                return device;
+            }
+        }
+        return null;
+    }
+    
+    // The device to transfer playback to when none is active: the last one used if it is still available,
+    // otherwise the first that accepts commands; null if there is none.
+    public Device chooseWakeTarget(List<Device> available) {
+        String last = configManager.getLastDeviceId();
+        Device fallback = null;
+        for (Device device : available) {
+            if (device.isRestricted()) {
+                continue;
+            }
+            if (device.getId().equals(last)) {
+                return device;
+            }
+            if (fallback == null) {
+                fallback = device;
+            }
+        }
+        return fallback;
+    }
+    
+    // Parses a /me/player/devices response body, streaming it like the player state instead of building a tree.
+    public static List<Device> parse(JsonFactory jsonFactory, InputStream body) throws IOException {
+        List<Device> devices = null;
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object in devices response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("devices".equals(field) && value == JsonToken.START_ARRAY) {
+                    devices = new ArrayList<>();
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        Device device = readDevice(parser);
+                        if (device != null) {
+                            devices.add(device);
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (devices == null) {
+            throw new IOException("Expected a devices array in devices response");
+        }
+        return Collections.unmodifiableList(devices);
+    }
+    
+    // Reads one device object, with the parser on its START_OBJECT, up to and including its END_OBJECT.
+    private static Device readDevice(JsonParser parser) throws IOException {
+        String id = null;
+        String name = "";
+        boolean active = false;
+        boolean restricted = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id":
+                    id = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    break;
+                case "name":
+                    name = value == JsonToken.VALUE_STRING ? parser.getText() : "";
+                    break;
+                case "is_active":
+                    active = value == JsonToken.VALUE_TRUE;
+                    break;
+                case "is_restricted":
+                    restricted = value == JsonToken.VALUE_TRUE;
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        return id == null ? null : new Device(id, name, active, restricted);
+    }
+    
+    private boolean isListed(String deviceId) {
+        List<Device> cached = devices;
+        if (cached == null) {
+            return false;
+        }
+        for (Device device : cached) {
+            if (device.getId().equals(deviceId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
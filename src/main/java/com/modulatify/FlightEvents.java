@@ -0,0 +1,128 @@
+package com.modulatify;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Custom Java Flight Recorder events for the hotkey-to-Spotify path. They are disabled unless a recording uses a
+// settings file that turns them on (the bundled modulatify.jfc does), and a disabled event costs next to nothing:
+// callers check isEnabled() or shouldCommit() before filling in fields. Stack traces are off, so a committed event
+// is a few fields in a thread-local buffer.
+final class FlightEvents {
+    private static final String CATEGORY = "Modulatify";
+    
+    private FlightEvents() {
+    }
+    
+    // Only recognised hotkeys are recorded, never arbitrary keystrokes.
+    @Name("com.modulatify.HotkeyRecognized")
+    @Label("Hotkey Recognized")
+    @Description("A key press matched a configured hotkey or completed a chord")
+    @Category({CATEGORY, "Hotkeys"})
+    @StackTrace(false)
+    static final class HotkeyRecognized extends Event {
+        @Label("Action")
+        String action;
+        
+        @Label("Repeat")
+        @Description("An auto-repeated press of a held hotkey")
+        boolean repeat;
+        
+        @Label("Match Time")
+        @Description("From the key event reaching the hook thread to the hotkey being matched")
+        @Timespan(Timespan.NANOSECONDS)
+        long matchTime;
+    }
+    
+    @Name("com.modulatify.CommandEnqueued")
+    @Label("Command Enqueued")
+    @Category({CATEGORY, "Commands"})
+    @StackTrace(false)
+    static final class CommandEnqueued extends Event {
+        @Label("Action")
+        String action;
+        
+        @Label("Folded")
+        @Description("The press was folded into a pending command of the same kind")
+        boolean folded;
+        
+        @Label("Dropped")
+        @Description("The lane was full and the press was discarded")
+        boolean dropped;
+        
+        @Label("Queued Runs")
+        int queuedRuns;
+    }
+    
+    @Name("com.modulatify.CommandDispatched")
+    @Label("Command Dispatched")
+    @Description("A pending command was taken off its lane and sent to Spotify")
+    @Category({CATEGORY, "Commands"})
+    @StackTrace(false)
+    static final class CommandDispatched extends Event {
+        @Label("Action")
+        String action;
+        
+        @Label("Presses")
+        int presses;
+        
+        @Label("Net Amount")
+        int amount;
+        
+        @Label("Queue Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueTime;
+        
+        @Label("Token Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        long tokenTime;
+        
+        @Label("Expired")
+        @Description("The latency budget ran out while queued, so nothing was sent")
+        boolean expired;
+    }
+    
+    @Name("com.modulatify.TokenRefresh")
+    @Label("Token Refresh")
+    @Category({CATEGORY, "Spotify"})
+    @StackTrace(false)
+    static final class TokenRefresh extends Event {
+        @Label("Status")
+        @Description("HTTP status, or -1 if no response was received")
+        int status;
+        
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+    
+    // One HTTP exchange with Spotify (API, accounts or artwork host); retries and pipelined skips each get their own.
+    @Name("com.modulatify.SpotifyRequest")
+    @Label("Spotify Request")
+    @Category({CATEGORY, "Spotify"})
+    @StackTrace(false)
+    static final class SpotifyRequest extends Event {
+        @Label("Method")
+        String method;
+        
+        @Label("Host")
+        String host;
+        
+        @Label("Endpoint")
+        @Description("Request path without the query string")
+        String endpoint;
+        
+        @Label("Status")
+        @Description("HTTP status, or -1 if the exchange failed with an I/O error")
+        int status;
+        
+        @Label("Protocol")
+        String protocol;
+        
+        @Label("Error")
+        String error;
+    }
+}
@@ -0,0 +1,91 @@
+package com.modulatify;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+// Starts and stops a Java Flight Recorder recording from inside the app, so an incident can be captured without
+// restarting with -XX:StartFlightRecording. It uses the bundled modulatify.jfc, which turns on the FlightEvents
+// plus a light set of JVM events. Nothing is recorded, and the events cost next to nothing, while it is off.
+public class FlightRecording {
+    private static final Log logger = Log.get(FlightRecording.class);
+    
+    public static final String SETTINGS_RESOURCE = "/modulatify.jfc";
+    private static final long MAX_SIZE_BYTES = 64L * 1024 * 1024;
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    private final Path directory;
+    private Recording recording;
+    private Path destination;
+    
+    // Recordings are written to the given directory when they are stopped.
+    public FlightRecording(Path directory) {
+        this.directory = directory;
+    }
+    
+    public synchronized boolean isRecording() {
+        return recording != null;
+    }
+    
+    // Returns the file the recording will be written to on stop.
+    public synchronized Path start() throws IOException, ParseException {
+        if (recording != null) {
+            return destination;
+        }
+        
+        Files.createDirectories(directory);
+        Path file = directory.resolve("modulatify-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr");
+        Recording started = new Recording(loadSettings());
+        try {
+            started.setName("Modulatify");
+            started.setToDisk(true);
+            started.setMaxSize(MAX_SIZE_BYTES);
+            started.setDestination(file);
+            started.start();
+        } catch (IOException | RuntimeException e) {
+            started.close();
+            throw e;
+        }
+        recording = started;
+        destination = file;
+        logger.info("Flight recording started, writing to {} on stop", file);
+        return file;
+    }
+    
+    // Stops the recording and returns the file it was written to, or null if none was running.
+    public synchronized Path stop() {
+        if (recording == null) {
+            return null;
+        }
+        
+        Path file = destination;
+        try {
+            recording.stop();
+        } finally {
+            recording.close();
+            recording = null;
+            destination = null;
+        }
+        logger.info("Flight recording written to {}", file);
+        return file;
+    }
+    
+    private static Configuration loadSettings() throws IOException, ParseException {
+        InputStream in = FlightRecording.class.getResourceAsStream(SETTINGS_RESOURCE);
+        if (in == null) {
+            throw new IOException("Missing " + SETTINGS_RESOURCE);
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return Configuration.create(reader);
+        }
+    }
+}
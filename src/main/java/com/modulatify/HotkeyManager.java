@@ -4,30 +4,58 @@ import com.github.kwhat.jnativehook.GlobalScreen;
 import com.github.kwhat.jnativehook.NativeHookException;
 import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
 import com.github.kwhat.jnativehook.keyboard.NativeKeyListener;
-import java.awt.Toolkit;
-import java.awt.event.KeyEvent;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.logging.Logger;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class HotkeyManager implements NativeKeyListener {
-    private static final Logger logger = Logger.getLogger(HotkeyManager.class.getName());
+    private static final Log logger = Log.get(HotkeyManager.class);
     
-    private final SpotifyController spotifyController;
+    private static final int NO_KEY = -1;
+    
+    private final CommandDispatcher commandDispatcher;
     private final ConfigManager configManager;
-    private final Map<String, Runnable> hotkeyActions;
+    private final Map<String, SpotifyCommand> hotkeyActions;
     private final Map<String, Integer> keyCodeMap;
-    private boolean enabled = true;
+    private final String[] actionIds;
+    private final SpotifyCommand[] commands;
+    private final RepeatRamp repeatRamp;
+    private volatile HotkeyMatcher matcher;
+    private volatile RepeatPolicy[] repeatPolicies;
+    private volatile long chordTimeoutNanos;
+    private volatile boolean enabled = true;
+    
+    // Chord progress; only touched on the native hook thread.
+    private HotkeyMatcher chordMatcher;
+    private int chordState = HotkeyMatcher.ROOT;
+    private long chordDeadlineNanos;
+    
+    // The hotkey currently held down; only touched on the native hook thread.
+    private int heldKeyCode = NO_KEY;
+    private int heldModifiers;
+    private int heldAction;
     
-    public HotkeyManager(SpotifyController spotifyController, ConfigManager configManager) {
-        this.spotifyController = spotifyController;
+    public HotkeyManager(CommandDispatcher commandDispatcher, ConfigManager configManager) {
+        this.commandDispatcher = commandDispatcher;
         this.configManager = configManager;
         this.hotkeyActions = new ConcurrentHashMap<>();
         this.keyCodeMap = new HashMap<>();
         
         initializeKeyCodeMap();
         initializeHotkeyActions();
+        
+        this.actionIds = hotkeyActions.keySet().toArray(new String[0]);
+        this.commands = new SpotifyCommand[actionIds.length];
+        for (int i = 0; i < actionIds.length; i++) {
+            commands[i] = hotkeyActions.get(actionIds[i]);
+        }
+        this.repeatRamp = new RepeatRamp(commandDispatcher, configManager);
+        this.repeatPolicies = loadRepeatPolicies();
+        this.matcher = compileHotkeys();
+        this.chordTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(configManager.getChordTimeoutMillis());
     }
     
     private void initializeKeyCodeMap() {
@@ -97,77 +125,159 @@ public class HotkeyManager implements NativeKeyListener {
         keyCodeMap.put("DOWN", NativeKeyEvent.VC_DOWN);
         keyCodeMap.put("LEFT", NativeKeyEvent.VC_LEFT);
         keyCodeMap.put("RIGHT", NativeKeyEvent.VC_RIGHT);
+        
+        // Any other VC_ key is accepted by its constant name or its native key text.
+        for (Field field : NativeKeyEvent.class.getFields()) {
+            if (field.getName().startsWith("VC_") && field.getType() == int.class
+                    && Modifier.isStatic(field.getModifiers())) {
+                try {
+                    int keyCode = field.getInt(null);
+                    keyCodeMap.putIfAbsent(field.getName().substring(3), keyCode);
+                    keyCodeMap.putIfAbsent(HotkeyMatcher.normalizeKeyName(NativeKeyEvent.getKeyText(keyCode)), keyCode);
+                } catch (IllegalAccessException e) {
+                    logger.fine("Skipping key constant {}", field.getName());
+                }
+            }
+        }
     }
     
     private void initializeHotkeyActions() {
-        hotkeyActions.put("skip_forward", () -> spotifyController.skipForward());
-        hotkeyActions.put("skip_backward", () -> spotifyController.skipBackward());
-        hotkeyActions.put("play_pause", () -> spotifyController.togglePlayPause());
-        hotkeyActions.put("volume_down", () -> spotifyController.volumeDown());
-        hotkeyActions.put("volume_up", () -> spotifyController.volumeUp());
+        for (SpotifyCommand command : SpotifyCommand.values()) {
+            hotkeyActions.put(command.getActionId(), command);
+        }
+    }
+    
+    // Loading the native library and installing the hook is the slow part of start-up, so it can be done
+    // ahead of time on another thread while the rest of the app initialises.
+    public static void registerNativeHook() throws NativeHookException {
+        if (!GlobalScreen.isNativeHookRegistered()) {
+            GlobalScreen.registerNativeHook();
+        }
     }
     
     public void registerHotkeys() throws NativeHookException {
-        GlobalScreen.registerNativeHook();
+        registerNativeHook();
         GlobalScreen.addNativeKeyListener(this);
         logger.info("Global hotkeys registered successfully");
     }
     
+    // Rebuilds the lookup table from the configuration and swaps it in atomically.
     public void updateHotkeys() {
+        chordTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(configManager.getChordTimeoutMillis());
+        repeatPolicies = loadRepeatPolicies();
+        repeatRamp.updateSettings();
+        matcher = compileHotkeys();
         logger.info("Hotkey configuration updated");
     }
     
+    private HotkeyMatcher compileHotkeys() {
+        String[] hotkeys = new String[actionIds.length];
+        for (int i = 0; i < actionIds.length; i++) {
+            hotkeys[i] = configManager.getHotkey(actionIds[i]);
+        }
+        return HotkeyMatcher.compile(hotkeys, keyCodeMap);
+    }
+    
+    private RepeatPolicy[] loadRepeatPolicies() {
+        RepeatPolicy[] policies = new RepeatPolicy[commands.length];
+        for (int i = 0; i < commands.length; i++) {
+            policies[i] = configManager.getRepeatPolicy(commands[i]);
+        }
+        return policies;
+    }
+    
     @Override
     public void nativeKeyPressed(NativeKeyEvent e) {
+        long eventNanos = System.nanoTime();
         if (!enabled) {
             return;
         }
         
-        String pressedKey = getKeyString(e);
+        int keyCode = e.getKeyCode();
+        if (HotkeyMatcher.isModifierKey(keyCode)) {
+            return;
+        }
         
-        for (String action : hotkeyActions.keySet()) {
-            String configuredHotkey = configManager.getHotkey(action);
-            if (configuredHotkey != null && configuredHotkey.equals(pressedKey)) {
-                logger.info("Hotkey activated: " + action + " (" + pressedKey + ")");
-                hotkeyActions.get(action).run();
-                break;
+        // OS auto-repeat re-sends the press of a held key with no release in between.
+        if (heldKeyCode != NO_KEY) {
+            if (keyCode == heldKeyCode && HotkeyMatcher.modifierMask(e.getModifiers()) == heldModifiers) {
+                if (repeatPolicies[heldAction] == RepeatPolicy.EVERY) {
+                    recordHotkey(heldAction, true, eventNanos);
+                    commandDispatcher.submit(commands[heldAction], eventNanos);
+                }
+                return;
             }
+            endHold();
+        }
+        
+        HotkeyMatcher current = matcher;
+        int state = chordState;
+        if (state != HotkeyMatcher.ROOT && (current != chordMatcher || eventNanos - chordDeadlineNanos > 0)) {
+            state = HotkeyMatcher.ROOT;
+        }
+        
+        int next = current.transition(state, e.getModifiers(), keyCode);
+        if (next == HotkeyMatcher.NO_STATE && state != HotkeyMatcher.ROOT) {
+            // A stroke that breaks a chord may itself start a hotkey or a new chord.
+            next = current.transition(HotkeyMatcher.ROOT, e.getModifiers(), keyCode);
+        }
+        chordState = HotkeyMatcher.ROOT;
+        if (next == HotkeyMatcher.NO_STATE) {
+            return;
+        }
+        
+        int actionIndex = current.action(next);
+        if (actionIndex == HotkeyMatcher.NO_MATCH) {
+            chordState = next;
+            chordMatcher = current;
+            chordDeadlineNanos = eventNanos + chordTimeoutNanos;
+            return;
+        }
+        
+        logger.info("Hotkey activated: {}", actionIds[actionIndex]);
+        recordHotkey(actionIndex, false, eventNanos);
+        commandDispatcher.submit(commands[actionIndex], eventNanos);
+        beginHold(keyCode, e.getModifiers(), actionIndex);
+    }
+    
+    private void recordHotkey(int actionIndex, boolean repeat, long eventNanos) {
+        FlightEvents.HotkeyRecognized event = new FlightEvents.HotkeyRecognized();
+        if (event.isEnabled()) {
+            event.action = actionIds[actionIndex];
+            event.repeat = repeat;
+            event.matchTime = System.nanoTime() - eventNanos;
+            event.commit();
+        }
+    }
+    
+    private void beginHold(int keyCode, int nativeModifiers, int actionIndex) {
+        heldKeyCode = keyCode;
+        heldModifiers = HotkeyMatcher.modifierMask(nativeModifiers);
+        heldAction = actionIndex;
+        if (repeatPolicies[actionIndex] == RepeatPolicy.RAMP) {
+            repeatRamp.start(commands[actionIndex]);
         }
     }
     
+    private void endHold() {
+        repeatRamp.stop();
+        heldKeyCode = NO_KEY;
+    }
+    
     @Override
     public void nativeKeyReleased(NativeKeyEvent e) {
+        if (e.getKeyCode() == heldKeyCode) {
+            endHold();
+        }
     }
     
     @Override
     public void nativeKeyTyped(NativeKeyEvent e) {
     }
     
-    private String getKeyString(NativeKeyEvent e) {
-        StringBuilder keyString = new StringBuilder();
-        
-        if ((e.getModifiers() & NativeKeyEvent.CTRL_MASK) != 0) {
-            keyString.append("Ctrl+");
-        }
-        if ((e.getModifiers() & NativeKeyEvent.ALT_MASK) != 0) {
-            keyString.append("Alt+");
-        }
-        if ((e.getModifiers() & NativeKeyEvent.SHIFT_MASK) != 0) {
-            keyString.append("Shift+");
-        }
-        if ((e.getModifiers() & NativeKeyEvent.META_MASK) != 0) {
-            keyString.append("Meta+");
-        }
-        
-        String keyText = NativeKeyEvent.getKeyText(e.getKeyCode());
-        keyString.append(keyText);
-        
-        return keyString.toString();
-    }
-    
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
-        logger.info("Hotkeys " + (enabled ? "enabled" : "disabled"));
+        logger.info("Hotkeys {}", enabled ? "enabled" : "disabled");
     }
     
     public boolean isEnabled() {
@@ -175,12 +285,13 @@ public class HotkeyManager implements NativeKeyListener {
     }
     
     public void cleanup() {
+        repeatRamp.shutdown();
         try {
             GlobalScreen.removeNativeKeyListener(this);
             GlobalScreen.unregisterNativeHook();
             logger.info("Global hotkeys unregistered successfully");
         } catch (NativeHookException e) {
-            logger.warning("Failed to unregister global hotkeys: " + e.getMessage());
+            logger.warning("Failed to unregister global hotkeys: {}", e.getMessage());
         }
     }
 }
\ No newline at end of file
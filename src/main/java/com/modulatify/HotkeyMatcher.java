@@ -0,0 +1,228 @@
+package com.modulatify;
+
+import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+// Immutable automaton for hotkeys and multi-stroke chords such as "Ctrl+Alt+M, V, 5". Each state is a node of the
+// trie of configured stroke sequences; transitions live in one open-addressing table keyed on (state, modifier mask,
+// virtual key code), so a keystroke costs a single probe whether or not it matches anything.
+public final class HotkeyMatcher {
+    private static final Log logger = Log.get(HotkeyMatcher.class);
+    
+    public static final int NO_MATCH = -1;
+    public static final int ROOT = 0;
+    public static final int NO_STATE = -1;
+    
+    public static final int CTRL = 1;
+    public static final int ALT = 2;
+    public static final int SHIFT = 4;
+    public static final int META = 8;
+    
+    private static final int EMPTY = -1;
+    private static final long EMPTY_KEY = -1L;
+    
+    private final long[] keys;
+    private final int[] targets;
+    private final int mask;
+    private final int[] actions;
+    // Only advanced while compiling.
+    private int stateCount = 1;
+    
+    private HotkeyMatcher(int strokes) {
+        int capacity = Integer.highestOneBit(Math.max(4, strokes * 4) - 1) << 1;
+        this.keys = new long[capacity];
+        this.targets = new int[capacity];
+        this.mask = capacity - 1;
+        this.actions = new int[strokes + 1];
+        Arrays.fill(keys, EMPTY_KEY);
+        Arrays.fill(actions, NO_MATCH);
+    }
+    
+    // hotkeys[i] is the configured hotkey string for action index i; strokes of a chord are separated by commas.
+    // Unparseable entries, duplicates and chords that would shadow one another are skipped with a warning.
+    public static HotkeyMatcher compile(String[] hotkeys, Map<String, Integer> keyCodeMap) {
+        int[][] sequences = new int[hotkeys.length][];
+        int totalStrokes = 0;
+        for (int i = 0; i < hotkeys.length; i++) {
+            if (hotkeys[i] == null || hotkeys[i].trim().isEmpty()) {
+                continue;
+            }
+            sequences[i] = parseSequence(hotkeys[i], keyCodeMap);
+            if (sequences[i] == null) {
+                logger.warning("Unrecognised hotkey: {}", hotkeys[i]);
+            } else {
+                totalStrokes += sequences[i].length;
+            }
+        }
+        
+        HotkeyMatcher matcher = new HotkeyMatcher(totalStrokes);
+        for (int i = 0; i < sequences.length; i++) {
+            if (sequences[i] != null && !matcher.add(sequences[i], i)) {
+                logger.warning("Hotkey conflicts with another hotkey or chord, ignored: {}", hotkeys[i]);
+            }
+        }
+        return matcher;
+    }
+    
+    // Runs on the native hook thread for every keystroke: no allocation, no locking.
+    // Returns the state reached from the given state, or NO_STATE if the stroke leads nowhere.
+    public int transition(int state, int nativeModifiers, int keyCode) {
+        long key = transitionKey(state, pack(modifierMask(nativeModifiers), keyCode));
+        int slot = mix(key) & mask;
+        while (true) {
+            long existing = keys[slot];
+            if (existing == key) {
+                return targets[slot];
+            }
+            if (existing == EMPTY_KEY) {
+                return NO_STATE;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+    
+    // The action completed by reaching this state, or NO_MATCH if the state is part-way through a chord.
+    public int action(int state) {
+        return actions[state];
+    }
+    
+    // Single-stroke lookup from the root: the action index, or NO_MATCH (also for the first stroke of a chord).
+    public int match(int nativeModifiers, int keyCode) {
+        int state = transition(ROOT, nativeModifiers, keyCode);
+        return state == NO_STATE ? NO_MATCH : actions[state];
+    }
+    
+    // Modifier keys pressed on their own neither advance nor break a chord.
+    public static boolean isModifierKey(int keyCode) {
+        return keyCode == NativeKeyEvent.VC_CONTROL || keyCode == NativeKeyEvent.VC_ALT
+                || keyCode == NativeKeyEvent.VC_SHIFT || keyCode == NativeKeyEvent.VC_META;
+    }
+    
+    public static int modifierMask(int nativeModifiers) {
+        int modifiers = 0;
+        if ((nativeModifiers & NativeKeyEvent.CTRL_MASK) != 0) {
+            modifiers |= CTRL;
+        }
+        if ((nativeModifiers & NativeKeyEvent.ALT_MASK) != 0) {
+            modifiers |= ALT;
+        }
+        if ((nativeModifiers & NativeKeyEvent.SHIFT_MASK) != 0) {
+            modifiers |= SHIFT;
+        }
+        if ((nativeModifiers & NativeKeyEvent.META_MASK) != 0) {
+            modifiers |= META;
+        }
+        return modifiers;
+    }
+    
+    // Parses strings such as "Ctrl+Alt+O" or "Shift+Page Up" into a packed key, or -1 if the key is unknown.
+    public static int parse(String hotkey, Map<String, Integer> keyCodeMap) {
+        String[] parts = hotkey.trim().split("\\+");
+        int modifiers = 0;
+        for (int i = 0; i < parts.length - 1; i++) {
+            switch (parts[i].trim().toUpperCase(Locale.ROOT)) {
+                case "CTRL":
+                    modifiers |= CTRL;
+                    break;
+                case "ALT":
+                    modifiers |= ALT;
+                    break;
+                case "SHIFT":
+                    modifiers |= SHIFT;
+                    break;
+                case "META":
+                    modifiers |= META;
+                    break;
+                default:
+                    return EMPTY;
+            }
+        }
+        
+        Integer keyCode = keyCodeMap.get(normalizeKeyName(parts[parts.length - 1]));
+        return keyCode == null ? EMPTY : pack(modifiers, keyCode);
+    }
+    
+    public static String normalizeKeyName(String keyName) {
+        return keyName.trim().toUpperCase(Locale.ROOT).replace(' ', '_');
+    }
+    
+    private static int[] parseSequence(String hotkey, Map<String, Integer> keyCodeMap) {
+        // A limit of -1 keeps trailing empty strokes, so "Ctrl+Alt+M," is rejected rather than read as "Ctrl+Alt+M".
+        String[] parts = hotkey.split(",", -1);
+        int[] strokes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            if (parts[i].trim().isEmpty()) {
+                return null;
+            }
+            strokes[i] = parse(parts[i], keyCodeMap);
+            if (strokes[i] == EMPTY) {
+                return null;
+            }
+        }
+        return strokes;
+    }
+    
+    // A sequence may not end where another one passes through, or pass through where another one ends:
+    // either way one of them could never fire.
+    private boolean add(int[] strokes, int action) {
+        int state = ROOT;
+        int depth = 0;
+        while (depth < strokes.length) {
+            int next = lookup(transitionKey(state, strokes[depth]));
+            if (next == NO_STATE) {
+                break;
+            }
+            state = next;
+            depth++;
+            if (actions[state] != NO_MATCH) {
+                return false;
+            }
+        }
+        if (depth == strokes.length) {
+            return false;
+        }
+        
+        for (; depth < strokes.length; depth++) {
+            int next = stateCount++;
+            put(transitionKey(state, strokes[depth]), next);
+            state = next;
+        }
+        actions[state] = action;
+        return true;
+    }
+    
+    private int lookup(long key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY_KEY) {
+            if (keys[slot] == key) {
+                return targets[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_STATE;
+    }
+    
+    private void put(long key, int target) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY_KEY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        targets[slot] = target;
+    }
+    
+    private static int pack(int modifiers, int keyCode) {
+        return (modifiers << 16) | (keyCode & 0xFFFF);
+    }
+    
+    private static long transitionKey(int state, int stroke) {
+        return ((long) state << 32) | (stroke & 0xFFFFFFFFL);
+    }
+    
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
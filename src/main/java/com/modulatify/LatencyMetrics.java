@@ -0,0 +1,103 @@
+package com.modulatify;
+
+import java.util.Locale;
+
+// One histogram per (command, stage); memory use is fixed regardless of how many presses are recorded.
+public class LatencyMetrics {
+    public enum Stage {
+        QUEUE,
+        TOKEN,
+        HTTP,
+        TOTAL;
+        
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+    
+    private static final SpotifyCommand[] COMMANDS = SpotifyCommand.values();
+    private static final Stage[] STAGES = Stage.values();
+    
+    private final LatencyHistogram[][] histograms = new LatencyHistogram[COMMANDS.length][STAGES.length];
+    
+    public LatencyMetrics() {
+        for (int c = 0; c < COMMANDS.length; c++) {
+            for (int s = 0; s < STAGES.length; s++) {
+                histograms[c][s] = new LatencyHistogram();
+            }
+        }
+    }
+    
+    public void record(SpotifyCommand command, Stage stage, long nanos) {
+        histograms[command.ordinal()][stage.ordinal()].recordNanos(nanos);
+    }
+    
+    public LatencyHistogram get(SpotifyCommand command, Stage stage) {
+        return histograms[command.ordinal()][stage.ordinal()];
+    }
+    
+    public long getTotalCount() {
+        long total = 0;
+        for (SpotifyCommand command : COMMANDS) {
+            total += get(command, Stage.TOTAL).getCount();
+        }
+        return total;
+    }
+    
+    // Prometheus text exposition format (summary with p50/p99 plus a max gauge), in seconds.
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP modulatify_command_latency_seconds Hotkey command latency by stage\n");
+        out.append("# TYPE modulatify_command_latency_seconds summary\n");
+        for (SpotifyCommand command : COMMANDS) {
+            for (Stage stage : STAGES) {
+                LatencyHistogram histogram = get(command, stage);
+                String labels = "action=\"" + command.getActionId() + "\",stage=\"" + stage.label() + "\"";
+                appendSample(out, "modulatify_command_latency_seconds", labels + ",quantile=\"0.5\"",
+                        seconds(histogram.getPercentileMicros(0.5)));
+                appendSample(out, "modulatify_command_latency_seconds", labels + ",quantile=\"0.99\"",
+                        seconds(histogram.getPercentileMicros(0.99)));
+                appendSample(out, "modulatify_command_latency_seconds_sum", labels, seconds(histogram.getSumMicros()));
+                appendSample(out, "modulatify_command_latency_seconds_count", labels, String.valueOf(histogram.getCount()));
+            }
+        }
+        out.append("# HELP modulatify_command_latency_max_seconds Slowest observed hotkey command by stage\n");
+        out.append("# TYPE modulatify_command_latency_max_seconds gauge\n");
+        for (SpotifyCommand command : COMMANDS) {
+            for (Stage stage : STAGES) {
+                String labels = "action=\"" + command.getActionId() + "\",stage=\"" + stage.label() + "\"";
+                appendSample(out, "modulatify_command_latency_max_seconds", labels,
+                        seconds(get(command, stage).getMaxMicros()));
+            }
+        }
+        return out.toString();
+    }
+    
+    // Compact human-readable summary of end-to-end latency per action, for the settings window.
+    public String toSummary() {
+        StringBuilder out = new StringBuilder();
+        for (SpotifyCommand command : COMMANDS) {
+            LatencyHistogram total = get(command, Stage.TOTAL);
+            if (total.getCount() == 0) {
+                out.append(String.format(Locale.ROOT, "%-14s no presses yet%n", command.getActionId()));
+                continue;
+            }
+            out.append(String.format(Locale.ROOT, "%-14s p50 %5d ms  p99 %5d ms  max %5d ms  http p50 %5d ms  (n=%d)%n",
+                    command.getActionId(),
+                    total.getPercentileMicros(0.5) / 1000,
+                    total.getPercentileMicros(0.99) / 1000,
+                    total.getMaxMicros() / 1000,
+                    get(command, Stage.HTTP).getPercentileMicros(0.5) / 1000,
+                    total.getCount()));
+        }
+        return out.toString();
+    }
+    
+    private static void appendSample(StringBuilder out, String name, String labels, String value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+    
+    private static String seconds(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1_000_000.0);
+    }
+}
@@ -0,0 +1,293 @@
+package com.modulatify;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+// Asynchronous front end to java.util.logging, so neither the hook thread nor a command ever waits on a handler's
+// I/O. A disabled level costs one check and no allocation. An enabled message claims a slot in a bounded lock-free
+// ring buffer with its "{}" template and up to three arguments; formatting and handing the record to the handlers
+// happen on a single background thread. When the buffer is full the message is dropped and counted, never blocked on.
+public final class Log {
+    private static final int CAPACITY = 1024;
+    private static final int MASK = CAPACITY - 1;
+    private static final long FLUSH_TIMEOUT_MS = 2_000;
+    private static final Object[] NO_ARGS = {};
+    
+    // One entry of the ring. A slot at ring index i is free for position p when sequence == p, and holds the message
+    // for position p once sequence == p + 1; the writer hands it back for the next lap by setting p + CAPACITY.
+    private static final class Slot {
+        volatile long sequence;
+        Logger logger;
+        Level level;
+        String format;
+        Object[] varargs;
+        Object arg1;
+        Object arg2;
+        Object arg3;
+        int argCount;
+        long millis;
+        long threadId;
+    }
+    
+    private static final Slot[] RING = new Slot[CAPACITY];
+    private static final AtomicLong HEAD = new AtomicLong();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final Logger SELF = Logger.getLogger(Log.class.getName());
+    // Advanced only by the writer thread; read by flush.
+    private static volatile long tail;
+    private static volatile boolean writerParked;
+    private static final Thread WRITER;
+    
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            RING[i] = new Slot();
+            RING[i].sequence = i;
+        }
+        WRITER = new Thread(Log::drainForever, "modulatify-log");
+        WRITER.setDaemon(true);
+        WRITER.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "modulatify-log-flush"));
+    }
+    
+    private final Logger logger;
+    
+    private Log(Logger logger) {
+        this.logger = logger;
+    }
+    
+    public static Log get(Class<?> type) {
+        return new Log(Logger.getLogger(type.getName()));
+    }
+    
+    public boolean isLoggable(Level level) {
+        return logger.isLoggable(level);
+    }
+    
+    public void fine(String message) {
+        log(Level.FINE, message, 0, null, null, null);
+    }
+    
+    public void fine(String format, Object arg) {
+        log(Level.FINE, format, 1, arg, null, null);
+    }
+    
+    public void fine(String format, Object arg1, Object arg2) {
+        log(Level.FINE, format, 2, arg1, arg2, null);
+    }
+    
+    public void fine(String format, Object arg1, Object arg2, Object arg3) {
+        log(Level.FINE, format, 3, arg1, arg2, arg3);
+    }
+    
+    public void info(String message) {
+        log(Level.INFO, message, 0, null, null, null);
+    }
+    
+    public void info(String format, Object arg) {
+        log(Level.INFO, format, 1, arg, null, null);
+    }
+    
+    public void info(String format, Object arg1, Object arg2) {
+        log(Level.INFO, format, 2, arg1, arg2, null);
+    }
+    
+    public void info(String format, Object arg1, Object arg2, Object arg3) {
+        log(Level.INFO, format, 3, arg1, arg2, arg3);
+    }
+    
+    public void warning(String message) {
+        log(Level.WARNING, message, 0, null, null, null);
+    }
+    
+    public void warning(String format, Object arg) {
+        log(Level.WARNING, format, 1, arg, null, null);
+    }
+    
+    public void warning(String format, Object arg1, Object arg2) {
+        log(Level.WARNING, format, 2, arg1, arg2, null);
+    }
+    
+    public void warning(String format, Object arg1, Object arg2, Object arg3) {
+        log(Level.WARNING, format, 3, arg1, arg2, arg3);
+    }
+    
+    public void severe(String message) {
+        log(Level.SEVERE, message, 0, null, null, null);
+    }
+    
+    public void severe(String format, Object arg) {
+        log(Level.SEVERE, format, 1, arg, null, null);
+    }
+    
+    public void severe(String format, Object arg1, Object arg2) {
+        log(Level.SEVERE, format, 2, arg1, arg2, null);
+    }
+    
+    // For the rare message with more than three arguments; the array is only allocated by the caller.
+    public void log(Level level, String format, Object... args) {
+        if (logger.isLoggable(level)) {
+            enqueue(level, format, args, 0, null, null, null);
+        }
+    }
+    
+    // Waits until everything logged so far has been handed to the handlers, e.g. before exiting.
+    public static void flush() {
+        long target = HEAD.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_TIMEOUT_MS);
+        while (tail < target && System.nanoTime() - deadline < 0) {
+            LockSupport.unpark(WRITER);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+    
+    private void log(Level level, String format, int argCount, Object arg1, Object arg2, Object arg3) {
+        if (logger.isLoggable(level)) {
+            enqueue(level, format, null, argCount, arg1, arg2, arg3);
+        }
+    }
+    
+    private void enqueue(Level level, String format, Object[] varargs, int argCount, Object arg1, Object arg2,
+                         Object arg3) {
+        Slot slot;
+        long position;
+        while (true) {
+            position = HEAD.get();
+            slot = RING[(int) position & MASK];
+            long lag = slot.sequence - position;
+            if (lag == 0) {
+                if (HEAD.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (lag < 0) {
+                // The writer has not freed this slot from the previous lap: the buffer is full.
+                DROPPED.incrementAndGet();
+                return;
+            }
+        }
+        
+        slot.logger = logger;
+        slot.level = level;
+        slot.format = format;
+        slot.varargs = varargs;
+        slot.arg1 = arg1;
+        slot.arg2 = arg2;
+        slot.arg3 = arg3;
+        slot.argCount = argCount;
+        slot.millis = System.currentTimeMillis();
+        slot.threadId = Thread.currentThread().getId();
+        slot.sequence = position + 1;
+        if (writerParked) {
+            LockSupport.unpark(WRITER);
+        }
+    }
+    
+    private static void drainForever() {
+        while (true) {
+            if (!drain()) {
+                writerParked = true;
+                // Re-check after announcing the park, so a message published in between is not left waiting.
+                if (!hasPending()) {
+                    LockSupport.park();
+                }
+                writerParked = false;
+            }
+        }
+    }
+    
+    private static boolean hasPending() {
+        long position = tail;
+        return RING[(int) position & MASK].sequence == position + 1;
+    }
+    
+    // Publishes everything that is ready; returns false if there was nothing.
+    private static boolean drain() {
+        boolean any = false;
+        long position = tail;
+        while (true) {
+            Slot slot = RING[(int) position & MASK];
+            if (slot.sequence != position + 1) {
+                break;
+            }
+            LogRecord record = toRecord(slot);
+            Logger logger = slot.logger;
+            slot.logger = null;
+            slot.varargs = null;
+            slot.arg1 = null;
+            slot.arg2 = null;
+            slot.arg3 = null;
+            slot.sequence = position + CAPACITY;
+            position++;
+            tail = position;
+            any = true;
+            publish(logger, record);
+        }
+        
+        long dropped = DROPPED.getAndSet(0);
+        if (dropped > 0) {
+            LogRecord record = new LogRecord(Level.WARNING, "Log buffer full, dropped " + dropped + " message(s)");
+            record.setLoggerName(SELF.getName());
+            record.setSourceClassName(Log.class.getName());
+            record.setSourceMethodName(null);
+            publish(SELF, record);
+        }
+        return any;
+    }
+    
+    private static LogRecord toRecord(Slot slot) {
+        String message;
+        if (slot.varargs != null) {
+            message = format(slot.format, slot.varargs, 0, null, null, null);
+        } else {
+            message = format(slot.format, NO_ARGS, slot.argCount, slot.arg1, slot.arg2, slot.arg3);
+        }
+        LogRecord record = new LogRecord(slot.level, message);
+        record.setLoggerName(slot.logger.getName());
+        // The caller is not on the stack any more; name the logger's class rather than let JUL infer this one.
+        record.setSourceClassName(slot.logger.getName());
+        record.setSourceMethodName(null);
+        record.setInstant(Instant.ofEpochMilli(slot.millis));
+        setThreadId(record, slot.threadId);
+        return record;
+    }
+    
+    // setLongThreadID replaces this from JDK 16, but the build targets Java 11.
+    @SuppressWarnings("deprecation")
+    private static void setThreadId(LogRecord record, long threadId) {
+        record.setThreadID((int) threadId);
+    }
+    
+    private static void publish(Logger logger, LogRecord record) {
+        try {
+            logger.log(record);
+        } catch (RuntimeException e) {
+            // A failing handler must not kill the writer thread.
+        }
+    }
+    
+    // Replaces each "{}" in turn with the next argument; the fixed arguments are used when args is empty.
+    static String format(String format, Object[] args, int argCount, Object arg1, Object arg2, Object arg3) {
+        int total = args.length > 0 ? args.length : argCount;
+        if (total == 0 || format == null) {
+            return format;
+        }
+        StringBuilder message = new StringBuilder(format.length() + 32 * total);
+        int start = 0;
+        int index = 0;
+        while (index < total) {
+            int placeholder = format.indexOf("{}", start);
+            if (placeholder < 0) {
+                break;
+            }
+            Object arg = args.length > 0 ? args[index] : index == 0 ? arg1 : index == 1 ? arg2 : arg3;
+            message.append(format, start, placeholder).append(arg);
+            start = placeholder + 2;
+            index++;
+        }
+        return message.append(format, start, format.length()).toString();
+    }
+}
@@ -0,0 +1,52 @@
+package com.modulatify;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Periodically writes the latency histograms as a Prometheus text file (for node_exporter's textfile collector or manual inspection).
+public class MetricsExporter {
+    private static final Log logger = Log.get(MetricsExporter.class);
+    
+    private static final long EXPORT_INTERVAL_SECONDS = 30;
+    
+    private final LatencyMetrics metrics;
+    private final Path metricsFile;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private long lastExportedCount = -1;
+    
+    public MetricsExporter(LatencyMetrics metrics, Path configDirectory) {
+        this.metrics = metrics;
+        this.metricsFile = configDirectory.resolve("metrics.prom");
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("modulatify-metrics"));
+    }
+    
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::export, EXPORT_INTERVAL_SECONDS, EXPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+    
+    public void stop() {
+        scheduler.shutdownNow();
+        export();
+    }
+    
+    private synchronized void export() {
+        long count = metrics.getTotalCount();
+        if (count == lastExportedCount) {
+            return;
+        }
+        try {
+            Files.createDirectories(metricsFile.getParent());
+            Path temp = metricsFile.resolveSibling(metricsFile.getFileName() + ".tmp");
+            Files.write(temp, metrics.toPrometheus().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, metricsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastExportedCount = count;
+        } catch (IOException e) {
+            logger.warning("Failed to export metrics: {}", e.getMessage());
+        }
+    }
+}
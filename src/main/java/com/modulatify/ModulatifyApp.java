@@ -1,86 +1,248 @@
 package com.modulatify;
 
 import java.awt.*;
-import java.util.logging.Logger;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.swing.SwingUtilities;
 
 public class ModulatifyApp {
-    private static final Logger logger = Logger.getLogger(ModulatifyApp.class.getName());
+    private static final Log logger = Log.get(ModulatifyApp.class);
     
+    private final boolean headless;
     private SystemTrayManager trayManager;
     private HotkeyManager hotkeyManager;
     private SpotifyController spotifyController;
+    private CommandDispatcher commandDispatcher;
+    private PlayerStatePoller playerStatePoller;
+    private LatencyMetrics latencyMetrics;
+    private MetricsExporter metricsExporter;
     private ConfigManager configManager;
+    private ConfigPersister configPersister;
+    private ControlServer controlServer;
+    private FlightRecording flightRecording;
     private SettingsGUI settingsGUI;
+    private volatile boolean started;
+    private boolean stopped;
     
+    public ModulatifyApp(boolean headless) {
+        this.headless = headless;
+    }
+    
+    // --headless runs without tray, settings window or global hotkeys; commands arrive over the control server.
     public static void main(String[] args) {
-        if (!SystemTray.isSupported()) {
-            System.err.println("System tray is not supported on this platform");
-            System.exit(1);
+        boolean headless = Arrays.asList(args).contains("--headless");
+        if (headless) {
+            System.setProperty("java.awt.headless", "true");
+        } else {
+            if (!SystemTray.isSupported()) {
+                System.err.println("System tray is not supported on this platform (use --headless)");
+                System.exit(1);
+            }
+            System.setProperty("java.awt.headless", "false");
         }
         
-        System.setProperty("java.awt.headless", "false");
-        
-        SwingUtilities.invokeLater(() -> {
-            try {
-                new ModulatifyApp().start();
-            } catch (Exception e) {
-                logger.severe("Failed to start Modulatify: " + e.getMessage());
-                e.printStackTrace();
-                System.exit(1);
+        try {
+            ModulatifyApp app = new ModulatifyApp(headless);
+            if (headless) {
+                Runtime.getRuntime().addShutdownHook(new Thread(app::stopServices, "modulatify-shutdown"));
             }
-        });
+            app.start();
+        } catch (Exception e) {
+            logger.severe("Failed to start Modulatify: {}", e.getMessage());
+            e.printStackTrace();
+            Log.flush();
+            System.exit(1);
+        }
     }
     
+    // The slow, independent parts of start-up run side by side: the native hook on a start-up thread, the tray icon
+    // on the EDT, and the HTTP client and Jackson set-up on another start-up thread while config is read here.
+    // Only the wiring between them waits.
     private void start() throws Exception {
-        logger.info("Starting Modulatify...");
-        
-        configManager = new ConfigManager();
-        configManager.loadConfig();
-        
-        spotifyController = new SpotifyController(configManager);
+        long startNanos = System.nanoTime();
+        logger.info("Starting Modulatify{}", headless ? " in headless mode..." : "...");
         
-        hotkeyManager = new HotkeyManager(spotifyController, configManager);
-        hotkeyManager.registerHotkeys();
-        
-        trayManager = new SystemTrayManager(this);
-        trayManager.createTrayIcon();
+        ExecutorService startupExecutor = Executors.newFixedThreadPool(2, new NamedThreadFactory("modulatify-startup"));
+        try {
+            CompletableFuture<Void> nativeHook = headless ? CompletableFuture.completedFuture(null)
+                    : CompletableFuture.runAsync(() -> {
+                        try {
+                            HotkeyManager.registerNativeHook();
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                    }, startupExecutor);
+            CompletableFuture<SystemTrayManager> tray = headless ? CompletableFuture.completedFuture(null)
+                    : CompletableFuture.supplyAsync(() -> {
+                        try {
+                            SystemTrayManager manager = new SystemTrayManager(this);
+                            manager.createTrayIcon();
+                            return manager;
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                    }, SwingUtilities::invokeLater);
+            
+            configManager = new ConfigManager();
+            configManager.loadConfig();
+            configPersister = new ConfigPersister(configManager);
+            configPersister.start();
+            
+            CompletableFuture<SpotifyController> controller = CompletableFuture.supplyAsync(() -> {
+                SpotifyController created = new SpotifyController(configManager);
+                created.start();
+                return created;
+            }, startupExecutor);
+            
+            latencyMetrics = new LatencyMetrics();
+            metricsExporter = new MetricsExporter(latencyMetrics, configManager.getConfigDirectory());
+            metricsExporter.start();
+            
+            // The poller's first read runs straight away in the background, which also warms Jackson and the connection.
+            spotifyController = await(controller);
+            playerStatePoller = new PlayerStatePoller(spotifyController);
+            playerStatePoller.start();
+            
+            commandDispatcher = new CommandDispatcher(spotifyController, configManager, latencyMetrics);
+            if (headless || configManager.isControlServerEnabled()) {
+                controlServer = new ControlServer(commandDispatcher, spotifyController, latencyMetrics,
+                        configManager.getControlPort(), configManager.getControlToken());
+                controlServer.start();
+            }
+            
+            if (!headless) {
+                hotkeyManager = new HotkeyManager(commandDispatcher, configManager);
+                await(nativeHook);
+                hotkeyManager.registerHotkeys();
+                
+                trayManager = await(tray);
+                flightRecording = new FlightRecording(configManager.getConfigDirectory().resolve("recordings"));
+                spotifyController.getRateLimiter().setStatusListener(trayManager::setStatus);
+                spotifyController.setConnectionListener(trayManager::setConnectionStatus);
+                trayManager.setConnectionStatus(spotifyController.getConnectionStatus());
+                spotifyController.setArtworkSizes(trayManager.getIconSize(), ArtworkCache.DISK_SIZE);
+                spotifyController.getNowPlaying().setDisplayListener(this::showNowPlaying);
+            } else if (!spotifyController.hasRefreshToken()) {
+                logger.warning("Not connected to Spotify: connect once from the Settings window, then restart headless");
+            }
+        } finally {
+            startupExecutor.shutdown();
+        }
+        started = true;
         
-        logger.info("Modulatify started successfully");
+        logger.info("Modulatify started in {} ms ({} ms since JVM start)", (System.nanoTime() - startNanos) / 1_000_000,
+                ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+    
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+    
+    private void showNowPlaying(Track track, boolean notify) {
+        trayManager.showNowPlaying(track, notify && configManager.isNowPlayingNotificationsEnabled());
+        if (configManager.isTrayArtworkEnabled()) {
+            // Completes at once when the art was prefetched with the queue.
+            spotifyController.getArtworkCache().load(track.getArtworkUrl(), trayManager.getIconSize())
+                    .thenAccept(artwork -> trayManager.setArtwork(track, artwork));
+        }
     }
     
     public void showSettings() {
+        // The tray icon can be clicked before the rest of the app has finished starting.
+        if (!started) {
+            return;
+        }
         if (settingsGUI == null) {
-            settingsGUI = new SettingsGUI(this, configManager, spotifyController);
+            settingsGUI = new SettingsGUI(this, configManager, spotifyController, latencyMetrics);
         }
         settingsGUI.setVisible(true);
     }
     
     public void applySettings() {
         try {
-            configManager.saveConfig();
             hotkeyManager.updateHotkeys();
             logger.info("Settings applied successfully");
         } catch (Exception e) {
-            logger.severe("Failed to apply settings: " + e.getMessage());
+            logger.severe("Failed to apply settings: {}", e.getMessage());
+        }
+    }
+    
+    // Starts a flight recording with the bundled settings, or stops the running one and reports where it was saved.
+    public void toggleFlightRecording() {
+        if (!started) {
+            return;
+        }
+        try {
+            if (flightRecording.isRecording()) {
+                Path file = flightRecording.stop();
+                trayManager.setRecording(false);
+                trayManager.showMessage("Flight recording saved", file.toString(), TrayIcon.MessageType.INFO);
+            } else {
+                flightRecording.start();
+                trayManager.setRecording(true);
+            }
+        } catch (Exception e) {
+            logger.warning("Flight recording failed: {}", e.getMessage());
+            trayManager.showMessage("Flight recording failed", e.getMessage(), TrayIcon.MessageType.ERROR);
         }
     }
     
     public void shutdown() {
+        stopServices();
+        System.exit(0);
+    }
+    
+    // Also run from a shutdown hook in headless mode, so it must not call System.exit itself.
+    private synchronized void stopServices() {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
         logger.info("Shutting down Modulatify...");
         
+        if (controlServer != null) {
+            controlServer.stop();
+        }
+        
         if (hotkeyManager != null) {
             hotkeyManager.cleanup();
         }
         
-        if (configManager != null) {
-            try {
-                configManager.saveConfig();
-            } catch (Exception e) {
-                logger.warning("Failed to save config on shutdown: " + e.getMessage());
-            }
+        if (commandDispatcher != null) {
+            commandDispatcher.shutdown();
         }
         
-        System.exit(0);
+        if (playerStatePoller != null) {
+            playerStatePoller.stop();
+        }
+        
+        if (spotifyController != null) {
+            spotifyController.shutdown();
+        }
+        
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+        }
+        
+        if (configPersister != null) {
+            configPersister.stop();
+        }
+        
+        if (flightRecording != null) {
+            flightRecording.stop();
+        }
+        
+        // Logging is asynchronous; hand the last messages to the handlers before the JVM goes away.
+        Log.flush();
     }
 }
\ No newline at end of file
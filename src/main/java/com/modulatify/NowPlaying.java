@@ -0,0 +1,168 @@
+package com.modulatify;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+// Follows what is playing and prefetches what comes next from /me/player/queue, so a forward skip can show the next
+// track the moment Spotify accepts it instead of after another round trip. The prediction is checked against the
+// next player state read and the display corrected if Spotify went elsewhere (e.g. the queue changed meanwhile).
+// Backward skips are not predicted, since "previous" may just restart the current track; they are shown once read.
+public class NowPlaying {
+    private static final Log logger = Log.get(NowPlaying.class);
+    
+    private static final int MAX_QUEUED_TRACKS = 10;
+    // Spotify can keep reporting the old track for a moment after accepting a skip.
+    private static final long CONFIRM_WINDOW_MS = 3_000;
+    private static final int UNKNOWN = -1;
+    
+    private final JsonFactory jsonFactory;
+    private Track current;
+    // The queue as of queueBaseId playing; position is how many tracks skips have moved past it, or UNKNOWN.
+    private String queueBaseId;
+    private List<Track> upcoming = Collections.emptyList();
+    private int position;
+    private boolean skipPending;
+    private Track predicted;
+    private String skippedFromId;
+    private long confirmDeadlineNanos;
+    private volatile BiConsumer<Track, Boolean> displayListener;
+    
+    public NowPlaying(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+    
+    public synchronized Track getCurrent() {
+        return predicted != null ? predicted : current;
+    }
+    
+    // The prefetched tracks after the one the queue was read for, in play order.
+    public synchronized List<Track> getUpcoming() {
+        return upcoming;
+    }
+    
+    // Whether the queue should be fetched for this state, i.e. the track changed since the last fetch.
+    public synchronized boolean needsQueue(PlayerState state) {
+        String itemId = state.getItemId();
+        return itemId != null && !skipPending && !itemId.equals(queueBaseId);
+    }
+    
+    // Stores a /me/player/queue response body.
+    public void updateQueue(InputStream body) throws IOException {
+        Track playing = null;
+        List<Track> queued = new ArrayList<>(MAX_QUEUED_TRACKS);
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object in queue response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("currently_playing".equals(field) && value == JsonToken.START_OBJECT) {
+                    playing = PlayerStateParser.readTrack(parser);
+                } else if ("queue".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        if (queued.size() < MAX_QUEUED_TRACKS) {
+                            Track track = PlayerStateParser.readTrack(parser);
+                            if (track != null) {
+                                queued.add(track);
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        
+        synchronized (this) {
+            queueBaseId = playing == null ? null : playing.getId();
+            upcoming = Collections.unmodifiableList(queued);
+            position = 0;
+        }
+    }
+    
+    // Called once Spotify accepted a skip of count tracks (negative for backward): shows the predicted track at once.
+    public void onSkipped(int count) {
+        Track shown;
+        synchronized (this) {
+            if (current == null) {
+                return;
+            }
+            if (!skipPending) {
+                skipPending = true;
+                skippedFromId = current.getId();
+                // A queue fetched for an earlier track says nothing about what follows this one.
+                position = current.getId().equals(queueBaseId) ? 0 : UNKNOWN;
+            }
+            confirmDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONFIRM_WINDOW_MS);
+            position = count > 0 && position != UNKNOWN ? position + count : UNKNOWN;
+            predicted = position > 0 && position <= upcoming.size() ? upcoming.get(position - 1) : null;
+            shown = predicted;
+        }
+        if (shown != null) {
+            logger.fine("Predicted next track {}", shown);
+            notifyListener(shown, true);
+        }
+    }
+    
+    // Whether a skip is still waiting to be confirmed by a player state read.
+    public synchronized boolean isAwaitingConfirmation() {
+        return skipPending && System.nanoTime() - confirmDeadlineNanos < 0;
+    }
+    
+    // Called with every player state read from Spotify.
+    public void onPlayerState(PlayerState state) {
+        Track item = state.getItem();
+        if (item == null) {
+            return;
+        }
+        Track shown = null;
+        boolean notify = false;
+        synchronized (this) {
+            if (skipPending && item.getId().equals(skippedFromId) && isAwaitingConfirmation()) {
+                // Spotify has not caught up with the skip yet.
+                return;
+            }
+            if (skipPending) {
+                if (predicted == null || !item.getId().equals(predicted.getId())) {
+                    if (predicted != null) {
+                        logger.fine("Predicted {} but Spotify is playing {}", predicted, item);
+                    }
+                    shown = item;
+                    notify = true;
+                }
+                skipPending = false;
+                predicted = null;
+            } else if (current == null || !item.getId().equals(current.getId())) {
+                shown = item;
+            }
+            current = item;
+        }
+        if (shown != null) {
+            notifyListener(shown, notify);
+        }
+    }
+    
+    // Receives the track to display, and whether it warrants a notification rather than just a tooltip update:
+    // skips do, tracks changing on their own do not.
+    public void setDisplayListener(BiConsumer<Track, Boolean> displayListener) {
+        this.displayListener = displayListener;
+    }
+    
+    private void notifyListener(Track track, boolean notify) {
+        BiConsumer<Track, Boolean> listener = displayListener;
+        if (listener != null) {
+            listener.accept(track, notify);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.modulatify;
+
+public final class PlayerState {
+    public static final int UNKNOWN_VOLUME = -1;
+    
+    private final boolean playing;
+    private final String deviceId;
+    private final int volumePercent;
+    private final long progressMs;
+    private final Track item;
+    private final long fetchedAtNanos;
+    
+    public PlayerState(boolean playing, String deviceId, int volumePercent, long progressMs, Track item,
+                       long fetchedAtNanos) {
+        this.playing = playing;
+        this.deviceId = deviceId;
+        this.volumePercent = volumePercent;
+        this.progressMs = progressMs;
+        this.item = item;
+        this.fetchedAtNanos = fetchedAtNanos;
+    }
+    
+    public static PlayerState inactive(long fetchedAtNanos) {
+        return new PlayerState(false, null, UNKNOWN_VOLUME, 0, null, fetchedAtNanos);
+    }
+    
+    public boolean isPlaying() {
+        return playing;
+    }
+    
+    public boolean hasActiveDevice() {
+        return deviceId != null;
+    }
+    
+    public String getDeviceId() {
+        return deviceId;
+    }
+    
+    public int getVolumePercent() {
+        return volumePercent;
+    }
+    
+    public long getDurationMs() {
+        return item == null ? 0 : item.getDurationMs();
+    }
+    
+    public String getItemId() {
+        return item == null ? null : item.getId();
+    }
+    
+    // The playing track or episode; null if nothing is loaded.
+    public Track getItem() {
+        return item;
+    }
+    
+    public long getFetchedAtNanos() {
+        return fetchedAtNanos;
+    }
+    
+    // Extrapolates playback progress from the last fetch when the track is playing.
+    public long getEstimatedProgressMs(long nowNanos) {
+        if (!playing) {
+            return progressMs;
+        }
+        long elapsedMs = (nowNanos - fetchedAtNanos) / 1_000_000L;
+        long durationMs = getDurationMs();
+        return durationMs > 0 ? Math.min(durationMs, progressMs + elapsedMs) : progressMs + elapsedMs;
+    }
+    
+    public long getEstimatedRemainingMs(long nowNanos) {
+        long durationMs = getDurationMs();
+        if (durationMs <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return durationMs - getEstimatedProgressMs(nowNanos);
+    }
+    
+    public PlayerState withPlaying(boolean playing) {
+        return new PlayerState(playing, deviceId, volumePercent, progressMs, item, fetchedAtNanos);
+    }
+    
+    public PlayerState withVolumePercent(int volumePercent) {
+        return new PlayerState(playing, deviceId, volumePercent, progressMs, item, fetchedAtNanos);
+    }
+    
+    @Override
+    public String toString() {
+        return "PlayerState{playing=" + playing + ", device=" + deviceId + ", volume=" + volumePercent
+                + ", progress=" + progressMs + "/" + getDurationMs() + ", item=" + getItemId() + "}";
+    }
+}
@@ -0,0 +1,38 @@
+package com.modulatify;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+public class PlayerStateCache {
+    private final AtomicReference<PlayerState> state = new AtomicReference<>();
+    private volatile Runnable refreshListener;
+    
+    public PlayerState get() {
+        return state.get();
+    }
+    
+    public void update(PlayerState newState) {
+        state.set(newState);
+    }
+    
+    // Applies an optimistic change to the cached state; returns the new state, or null if nothing is cached.
+    public PlayerState updateOptimistically(UnaryOperator<PlayerState> change) {
+        return state.updateAndGet(current -> current == null ? null : change.apply(current));
+    }
+    
+    public void invalidate() {
+        state.set(null);
+        requestRefresh();
+    }
+    
+    public void requestRefresh() {
+        Runnable listener = refreshListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+    
+    public void setRefreshListener(Runnable refreshListener) {
+        this.refreshListener = refreshListener;
+    }
+}
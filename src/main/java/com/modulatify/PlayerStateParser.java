@@ -0,0 +1,179 @@
+package com.modulatify;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Turns a /me/player response body into a PlayerState.
+// Streams the body and picks out only the handful of fields we use; the track, album, artist and image
+// graph is skipped token by token instead of being materialised.
+public class PlayerStateParser {
+    private static final int MAX_ARTISTS = 3;
+    
+    private final JsonFactory jsonFactory;
+    
+    public PlayerStateParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+    
+    public PlayerState parse(InputStream body, long fetchedAtNanos) throws IOException {
+        boolean playing = false;
+        String deviceId = null;
+        int volumePercent = PlayerState.UNKNOWN_VOLUME;
+        long progressMs = 0;
+        Track item = null;
+        
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object in player response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "is_playing":
+                        playing = value == JsonToken.VALUE_TRUE;
+                        break;
+                    case "progress_ms":
+                        progressMs = value.isNumeric() ? parser.getLongValue() : 0;
+                        break;
+                    case "device":
+                        if (value == JsonToken.START_OBJECT) {
+                            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                String deviceField = parser.getCurrentName();
+                                JsonToken deviceValue = parser.nextToken();
+                                if ("id".equals(deviceField)) {
+                                    deviceId = deviceValue == JsonToken.VALUE_STRING ? parser.getText() : null;
+                                } else if ("volume_percent".equals(deviceField)) {
+                                    volumePercent = deviceValue.isNumeric() ? parser.getIntValue() : PlayerState.UNKNOWN_VOLUME;
+                                } else {
+                                    parser.skipChildren();
+                                }
+                            }
+                        }
+                        break;
+                    case "item":
+                        item = value == JsonToken.START_OBJECT ? readTrack(parser) : null;
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+        }
+        
+        return new PlayerState(playing, deviceId, volumePercent, progressMs, item, fetchedAtNanos);
+    }
+    
+    // Reads a track or episode object, with the parser on its START_OBJECT, up to and including its END_OBJECT.
+    // Albums, images and the like are skipped; only the first few artist names are kept.
+    static Track readTrack(JsonParser parser) throws IOException {
+        String id = null;
+        String name = null;
+        StringBuilder artists = new StringBuilder();
+        long durationMs = 0;
+        String artworkUrl = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id":
+                    id = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    break;
+                case "name":
+                    name = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    break;
+                case "duration_ms":
+                    durationMs = value.isNumeric() ? parser.getLongValue() : 0;
+                    break;
+                case "artists":
+                    if (value == JsonToken.START_ARRAY) {
+                        readArtistNames(parser, artists);
+                    }
+                    break;
+                case "album":
+                    if (value == JsonToken.START_OBJECT) {
+                        artworkUrl = readAlbumArtwork(parser);
+                    }
+                    break;
+                case "images":
+                    // Episodes carry their images directly.
+                    if (value == JsonToken.START_ARRAY && artworkUrl == null) {
+                        artworkUrl = readArtworkUrl(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        return id == null ? null : new Track(id, name, artists.toString(), durationMs, artworkUrl);
+    }
+    
+    private static String readAlbumArtwork(JsonParser parser) throws IOException {
+        String artworkUrl = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.START_ARRAY && "images".equals(field)) {
+                artworkUrl = readArtworkUrl(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return artworkUrl;
+    }
+    
+    // Picks the smallest image at least ArtworkCache.DISK_SIZE wide, or the largest one if none is that big.
+    private static String readArtworkUrl(JsonParser parser) throws IOException {
+        String best = null;
+        int bestWidth = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String url = null;
+            int width = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("url".equals(field) && value == JsonToken.VALUE_STRING) {
+                    url = parser.getText();
+                } else if ("width".equals(field) && value.isNumeric()) {
+                    width = parser.getIntValue();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (url == null) {
+                continue;
+            }
+            boolean bigEnough = width >= ArtworkCache.DISK_SIZE;
+            boolean bestBigEnough = bestWidth >= ArtworkCache.DISK_SIZE;
+            if (best == null || (bigEnough && (!bestBigEnough || width < bestWidth)) || (!bestBigEnough && width > bestWidth)) {
+                best = url;
+                bestWidth = width;
+            }
+        }
+        return best;
+    }
+    
+    private static void readArtistNames(JsonParser parser, StringBuilder artists) throws IOException {
+        int count = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("name".equals(field) && value == JsonToken.VALUE_STRING && count < MAX_ARTISTS) {
+                    if (count++ > 0) {
+                        artists.append(", ");
+                    }
+                    artists.append(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.modulatify;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class PlayerStatePoller {
+    private static final Log logger = Log.get(PlayerStatePoller.class);
+    
+    private static final long PLAYING_INTERVAL_MS = 5_000;
+    private static final long IDLE_INTERVAL_MS = 20_000;
+    private static final long UNAUTHENTICATED_INTERVAL_MS = 30_000;
+    private static final long TRACK_END_WINDOW_MS = 5_000;
+    private static final long MIN_INTERVAL_MS = 500;
+    private static final long REFRESH_DELAY_MS = 250;
+    
+    private final SpotifyController spotifyController;
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> nextPoll;
+    private boolean running;
+    private boolean polling;
+    // A pollSoon that arrived while a poll was in flight; that poll may have read the state before the change.
+    private boolean pendingSoon;
+    
+    public PlayerStatePoller(SpotifyController spotifyController) {
+        this.spotifyController = spotifyController;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("modulatify-poller"));
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+    }
+    
+    public synchronized void start() {
+        running = true;
+        spotifyController.getPlayerStateCache().setRefreshListener(this::pollSoon);
+        reschedule(0);
+    }
+    
+    public synchronized void stop() {
+        running = false;
+        spotifyController.getPlayerStateCache().setRefreshListener(null);
+        scheduler.shutdownNow();
+    }
+    
+    // Brings the next poll forward, e.g. after a command response contradicted the cache.
+    public synchronized void pollSoon() {
+        if (polling) {
+            pendingSoon = true;
+            return;
+        }
+        if (nextPoll == null || nextPoll.getDelay(TimeUnit.MILLISECONDS) > REFRESH_DELAY_MS) {
+            reschedule(REFRESH_DELAY_MS);
+        }
+    }
+    
+    private synchronized void reschedule(long delayMs) {
+        if (!running) {
+            return;
+        }
+        if (nextPoll != null) {
+            nextPoll.cancel(false);
+        }
+        nextPoll = scheduler.schedule(this::poll, delayMs, TimeUnit.MILLISECONDS);
+    }
+    
+    private void poll() {
+        synchronized (this) {
+            polling = true;
+            pendingSoon = false;
+        }
+        
+        long throttleMs = spotifyController.getRateLimiter().delayMillis(1);
+        if (throttleMs > 0) {
+            finishPoll(throttleMs);
+            return;
+        }
+        
+        long delayMs;
+        try {
+            if (!spotifyController.isAuthenticated() && !spotifyController.hasRefreshToken()) {
+                delayMs = UNAUTHENTICATED_INTERVAL_MS;
+            } else {
+                PlayerState state = spotifyController.refreshPlayerState();
+                delayMs = nextInterval(state);
+                if (spotifyController.getNowPlaying().isAwaitingConfirmation()) {
+                    // Confirm (or correct) the track shown after a skip quickly.
+                    delayMs = Math.min(delayMs, MIN_INTERVAL_MS);
+                }
+            }
+        } catch (Exception e) {
+            logger.fine("Player state poll failed: {}", e.getMessage());
+            delayMs = IDLE_INTERVAL_MS;
+        }
+        finishPoll(delayMs);
+    }
+    
+    private synchronized void finishPoll(long delayMs) {
+        polling = false;
+        if (pendingSoon) {
+            pendingSoon = false;
+            delayMs = Math.min(delayMs, REFRESH_DELAY_MS);
+        }
+        reschedule(delayMs);
+    }
+    
+    private long nextInterval(PlayerState state) {
+        if (state == null || !state.isPlaying()) {
+            return IDLE_INTERVAL_MS;
+        }
+        
+        long remainingMs = state.getEstimatedRemainingMs(System.nanoTime());
+        if (remainingMs <= TRACK_END_WINDOW_MS) {
+            // Poll right after the track boundary so the cache picks up the next item promptly.
+            return Math.max(MIN_INTERVAL_MS, remainingMs + MIN_INTERVAL_MS);
+        }
+        return Math.min(PLAYING_INTERVAL_MS, remainingMs - TRACK_END_WINDOW_MS);
+    }
+}
@@ -0,0 +1,144 @@
+package com.modulatify;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Client-side token bucket that backs off multiplicatively on 429 responses and recovers additively on success.
+public class RateLimiter {
+    private static final Log logger = Log.get(RateLimiter.class);
+    
+    private static final double MIN_RATE_PER_SECOND = 0.5;
+    private static final double RECOVERY_PER_SUCCESS = 0.1;
+    private static final long DEFAULT_RETRY_AFTER_SECONDS = 1;
+    
+    private final double capacity;
+    private final double maxRatePerSecond;
+    private double tokens;
+    private double ratePerSecond;
+    private long lastRefillNanos = System.nanoTime();
+    private long blockedUntilNanos = System.nanoTime();
+    private boolean throttled;
+    private volatile Consumer<String> statusListener;
+    
+    public RateLimiter(double capacity, double maxRatePerSecond) {
+        this.capacity = Math.max(1, capacity);
+        this.maxRatePerSecond = Math.max(MIN_RATE_PER_SECOND, maxRatePerSecond);
+        this.tokens = this.capacity;
+        this.ratePerSecond = this.maxRatePerSecond;
+    }
+    
+    // Milliseconds until the given number of permits is available; 0 if they can be taken now.
+    public synchronized long delayMillis(int permits) {
+        long now = System.nanoTime();
+        refill(now);
+        long blockedNanos = Math.max(0, blockedUntilNanos - now);
+        double missing = permits - tokens;
+        long refillNanos = missing > 0 ? (long) (missing / ratePerSecond * 1_000_000_000L) : 0;
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(blockedNanos, refillNanos) + 999_999);
+    }
+    
+    public synchronized boolean tryAcquire(int permits) {
+        long now = System.nanoTime();
+        refill(now);
+        if (now - blockedUntilNanos < 0 || tokens < permits) {
+            return false;
+        }
+        tokens -= permits;
+        return true;
+    }
+    
+    // Waits for permits if they become available within maxWaitMillis; returns false without waiting otherwise.
+    public boolean acquire(int permits, long maxWaitMillis) {
+        while (true) {
+            long delayMs = delayMillis(permits);
+            if (delayMs > maxWaitMillis) {
+                return false;
+            }
+            if (delayMs > 0) {
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            if (tryAcquire(permits)) {
+                return true;
+            }
+        }
+    }
+    
+    public void onSuccess() {
+        boolean cleared;
+        synchronized (this) {
+            ratePerSecond = Math.min(maxRatePerSecond, ratePerSecond + RECOVERY_PER_SUCCESS);
+            cleared = throttled && System.nanoTime() - blockedUntilNanos >= 0;
+            if (cleared) {
+                throttled = false;
+            }
+        }
+        if (cleared) {
+            logger.info("Spotify rate limit cleared");
+            notifyListener(null);
+        }
+    }
+    
+    // Honours a 429 Retry-After header (seconds) and halves the sustained request rate.
+    public void onRateLimited(String retryAfterHeader) {
+        long retryAfterSeconds = DEFAULT_RETRY_AFTER_SECONDS;
+        if (retryAfterHeader != null) {
+            try {
+                retryAfterSeconds = Math.max(1, Long.parseLong(retryAfterHeader.trim()));
+            } catch (NumberFormatException e) {
+                logger.fine("Unparseable Retry-After header: {}", retryAfterHeader);
+            }
+        }
+        
+        String status;
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            blockedUntilNanos = Math.max(blockedUntilNanos, now + TimeUnit.SECONDS.toNanos(retryAfterSeconds));
+            ratePerSecond = Math.max(MIN_RATE_PER_SECOND, ratePerSecond / 2);
+            tokens = 0;
+            throttled = true;
+            status = describe(now);
+        }
+        logger.warning(status);
+        notifyListener(status);
+    }
+    
+    // A user-facing description of the current throttle, or null when requests are not being held back.
+    public synchronized String getStatus() {
+        long now = System.nanoTime();
+        refill(now);
+        if (now - blockedUntilNanos < 0) {
+            return describe(now);
+        }
+        return tokens < 1 ? "Pacing requests to stay under Spotify's rate limit" : null;
+    }
+    
+    public void setStatusListener(Consumer<String> statusListener) {
+        this.statusListener = statusListener;
+    }
+    
+    private String describe(long now) {
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(blockedUntilNanos - now + 999_999_999L));
+        return "Rate limited by Spotify, presses delayed for " + seconds + "s";
+    }
+    
+    private void refill(long now) {
+        double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+        if (elapsedSeconds > 0) {
+            tokens = Math.min(capacity, tokens + elapsedSeconds * ratePerSecond);
+            lastRefillNanos = now;
+        }
+    }
+    
+    private void notifyListener(String status) {
+        Consumer<String> listener = statusListener;
+        if (listener != null) {
+            listener.accept(status);
+        }
+    }
+}
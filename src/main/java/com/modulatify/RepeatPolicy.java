@@ -0,0 +1,29 @@
+package com.modulatify;
+
+import java.util.Locale;
+
+// What a held hotkey does while the OS auto-repeats it (roughly 30 presses a second).
+public enum RepeatPolicy {
+    // Every auto-repeat counts as a fresh press.
+    EVERY,
+    // Only the initial press fires; repeats are dropped until the key is released.
+    FIRE_ONCE,
+    // The initial press fires, then RepeatRamp fires at its own accelerating pace until release.
+    RAMP;
+    
+    public static RepeatPolicy fromConfig(String value, RepeatPolicy defaultValue) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        String name = value.trim().toUpperCase(Locale.ROOT);
+        // Configs written as "ignore" meant ignoring the auto-repeats, which is what FIRE_ONCE does.
+        if (name.equals("IGNORE")) {
+            return FIRE_ONCE;
+        }
+        try {
+            return valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+}
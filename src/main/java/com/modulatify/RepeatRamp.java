@@ -0,0 +1,112 @@
+package com.modulatify;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Replaces OS auto-repeat for a held RAMP hotkey with paced presses: the first after an initial delay, then at
+// intervals that shrink by a fixed factor down to a floor, so a hold starts fine-grained and speeds up.
+// A hold is capped at a maximum number of steps, which also bounds the damage of a lost key-release event.
+public class RepeatRamp {
+    private static final Log logger = Log.get(RepeatRamp.class);
+    
+    private final CommandDispatcher commandDispatcher;
+    private final ConfigManager configManager;
+    private final ScheduledThreadPoolExecutor scheduler;
+    // Read from the config up front so a press on the hook thread never parses properties.
+    private volatile Settings settings;
+    
+    private SpotifyCommand command;
+    private ScheduledFuture<?> nextStep;
+    private long intervalMs;
+    private int remainingSteps;
+    private long generation;
+    
+    public RepeatRamp(CommandDispatcher commandDispatcher, ConfigManager configManager) {
+        this.commandDispatcher = commandDispatcher;
+        this.configManager = configManager;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("modulatify-repeat"));
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.settings = new Settings(configManager);
+    }
+    
+    // Re-reads the ramp settings after the configuration changed; a hold in progress keeps its current pace.
+    public void updateSettings() {
+        settings = new Settings(configManager);
+    }
+    
+    // Called on the hook thread after the initial press has been submitted.
+    public synchronized void start(SpotifyCommand command) {
+        cancel();
+        Settings current = settings;
+        this.command = command;
+        this.intervalMs = current.intervalMs;
+        this.remainingSteps = current.maxSteps;
+        schedule(current.initialDelayMs);
+    }
+    
+    public synchronized void stop() {
+        cancel();
+    }
+    
+    public void shutdown() {
+        stop();
+        scheduler.shutdownNow();
+    }
+    
+    private void step(long scheduledGeneration) {
+        SpotifyCommand current;
+        synchronized (this) {
+            // A step that fired just as the key was released (or another hold began) belongs to a finished hold.
+            if (scheduledGeneration != generation || remainingSteps <= 0) {
+                return;
+            }
+            current = command;
+            remainingSteps--;
+            if (remainingSteps > 0) {
+                Settings pace = settings;
+                intervalMs = Math.max(pace.minIntervalMs, (long) (intervalMs * pace.acceleration));
+                schedule(intervalMs);
+            } else {
+                logger.fine("Repeat ramp for {} reached its step limit", current.getActionId());
+                nextStep = null;
+            }
+        }
+        commandDispatcher.submit(current, System.nanoTime());
+    }
+    
+    // Must be called with the monitor held.
+    private void schedule(long delayMs) {
+        if (scheduler.isShutdown()) {
+            nextStep = null;
+            return;
+        }
+        long scheduledGeneration = generation;
+        nextStep = scheduler.schedule(() -> step(scheduledGeneration), delayMs, TimeUnit.MILLISECONDS);
+    }
+    
+    // Must be called with the monitor held.
+    private void cancel() {
+        generation++;
+        if (nextStep != null) {
+            nextStep.cancel(false);
+            nextStep = null;
+        }
+    }
+    
+    private static final class Settings {
+        private final long initialDelayMs;
+        private final long intervalMs;
+        private final long minIntervalMs;
+        private final double acceleration;
+        private final int maxSteps;
+        
+        private Settings(ConfigManager configManager) {
+            this.initialDelayMs = configManager.getRampInitialDelayMillis();
+            this.intervalMs = configManager.getRampIntervalMillis();
+            this.minIntervalMs = configManager.getRampMinIntervalMillis();
+            this.acceleration = configManager.getRampAcceleration();
+            this.maxSteps = configManager.getRampMaxSteps();
+        }
+    }
+}
@@ -6,35 +6,46 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.awt.image.BufferedImage;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.logging.Logger;
 
 public class SettingsGUI extends JFrame {
-    private static final Logger logger = Logger.getLogger(SettingsGUI.class.getName());
+    private static final Log logger = Log.get(SettingsGUI.class);
+    
+    private static final int MAX_CHORD_STROKES = 3;
     
     private final ModulatifyApp app;
     private final ConfigManager configManager;
     private final SpotifyController spotifyController;
+    private final LatencyMetrics latencyMetrics;
     
     private final Map<String, JTextField> hotkeyFields;
+    private final Map<String, Long> lastStrokeMillis;
     private JLabel spotifyStatusLabel;
+    private JLabel nowPlayingLabel;
     private JButton spotifyButton;
+    private JTextArea latencyArea;
+    private JButton refreshLatencyButton;
     private JButton applyButton;
     private JButton cancelButton;
     
-    public SettingsGUI(ModulatifyApp app, ConfigManager configManager, SpotifyController spotifyController) {
+    public SettingsGUI(ModulatifyApp app, ConfigManager configManager, SpotifyController spotifyController,
+                       LatencyMetrics latencyMetrics) {
         this.app = app;
         this.configManager = configManager;
         this.spotifyController = spotifyController;
+        this.latencyMetrics = latencyMetrics;
         this.hotkeyFields = new HashMap<>();
+        this.lastStrokeMillis = new HashMap<>();
         
         initializeComponents();
         setupLayout();
         setupEventHandlers();
         updateSpotifyStatus();
         loadCurrentSettings();
+        updateLatencySummary();
         
         setTitle("Modulatify Settings");
         setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
@@ -44,14 +55,20 @@ public class SettingsGUI extends JFrame {
     }
     
     private void initializeComponents() {
-        hotkeyFields.put("skip_forward", new JTextField(15));
-        hotkeyFields.put("skip_backward", new JTextField(15));
-        hotkeyFields.put("play_pause", new JTextField(15));
-        hotkeyFields.put("volume_down", new JTextField(15));
-        hotkeyFields.put("volume_up", new JTextField(15));
+        hotkeyFields.put("skip_forward", new JTextField(20));
+        hotkeyFields.put("skip_backward", new JTextField(20));
+        hotkeyFields.put("play_pause", new JTextField(20));
+        hotkeyFields.put("volume_down", new JTextField(20));
+        hotkeyFields.put("volume_up", new JTextField(20));
         
         spotifyStatusLabel = new JLabel("Disconnected");
+        nowPlayingLabel = new JLabel("Nothing playing");
+        nowPlayingLabel.setIconTextGap(10);
         spotifyButton = new JButton("Connect");
+        latencyArea = new JTextArea(5, 60);
+        latencyArea.setEditable(false);
+        latencyArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+        refreshLatencyButton = new JButton("Refresh");
         applyButton = new JButton("Apply");
         cancelButton = new JButton("Cancel");
         
@@ -117,9 +134,28 @@ public class SettingsGUI extends JFrame {
         
         gbc.gridx = 0;
         gbc.gridy = 7;
+        gbc.gridwidth = 1;
+        mainPanel.add(new JLabel("Now Playing:"), gbc);
+        gbc.gridx = 1;
+        mainPanel.add(nowPlayingLabel, gbc);
+        
+        gbc.gridx = 0;
+        gbc.gridy = 8;
         gbc.gridwidth = 2;
         mainPanel.add(new JSeparator(), gbc);
         
+        gbc.gridx = 0;
+        gbc.gridy = 9;
+        gbc.gridwidth = 1;
+        mainPanel.add(new JLabel("Latency:"), gbc);
+        gbc.gridx = 1;
+        mainPanel.add(refreshLatencyButton, gbc);
+        
+        gbc.gridx = 0;
+        gbc.gridy = 10;
+        gbc.gridwidth = 2;
+        mainPanel.add(new JScrollPane(latencyArea), gbc);
+        
         JPanel buttonPanel = new JPanel(new FlowLayout());
         buttonPanel.add(applyButton);
         buttonPanel.add(cancelButton);
@@ -136,8 +172,7 @@ public class SettingsGUI extends JFrame {
             field.addKeyListener(new KeyListener() {
                 @Override
                 public void keyPressed(KeyEvent e) {
-                    String keyString = buildKeyString(e);
-                    field.setText(keyString);
+                    recordStroke(action, field, buildKeyString(e));
                     e.consume();
                 }
                 
@@ -155,6 +190,7 @@ public class SettingsGUI extends JFrame {
             field.addFocusListener(new java.awt.event.FocusAdapter() {
                 @Override
                 public void focusGained(java.awt.event.FocusEvent e) {
+                    lastStrokeMillis.remove(action);
                     field.selectAll();
                 }
             });
@@ -162,6 +198,8 @@ public class SettingsGUI extends JFrame {
         
         spotifyButton.addActionListener(e -> handleSpotifyConnection());
         
+        refreshLatencyButton.addActionListener(e -> updateLatencySummary());
+        
         applyButton.addActionListener(e -> applySettings());
         
         cancelButton.addActionListener(e -> {
@@ -197,6 +235,29 @@ public class SettingsGUI extends JFrame {
         return keyString.toString();
     }
     
+    // A stroke typed within the chord timeout of the previous one is appended, so "Ctrl+Alt+M, V, 5" is recorded by
+    // simply typing it. Modifier-only presses show as a preview but never break a chord being recorded.
+    private void recordStroke(String action, JTextField field, String stroke) {
+        long now = System.currentTimeMillis();
+        Long last = lastStrokeMillis.get(action);
+        boolean chordOpen = last != null && now - last < configManager.getChordTimeoutMillis();
+        boolean complete = !stroke.isEmpty() && !stroke.endsWith("+");
+        
+        if (!complete) {
+            if (!chordOpen) {
+                field.setText(stroke);
+            }
+            return;
+        }
+        
+        if (chordOpen && !field.getText().isEmpty() && field.getText().split(",").length < MAX_CHORD_STROKES) {
+            field.setText(field.getText() + ", " + stroke);
+        } else {
+            field.setText(stroke);
+        }
+        lastStrokeMillis.put(action, now);
+    }
+    
     private void handleSpotifyConnection() {
         if (spotifyController.isAuthenticated()) {
             int result = JOptionPane.showConfirmDialog(this, 
@@ -226,7 +287,7 @@ public class SettingsGUI extends JFrame {
                 }
             }
         } catch (Exception e) {
-            logger.severe("Error during Spotify connection: " + e.getMessage());
+            logger.severe("Error during Spotify connection: {}", e.getMessage());
             JOptionPane.showMessageDialog(this, "Error opening browser. Please try again.", 
                 "Connection Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -244,6 +305,43 @@ public class SettingsGUI extends JFrame {
         }
     }
     
+    private void updateLatencySummary() {
+        latencyArea.setText(latencyMetrics.toSummary());
+        latencyArea.setCaretPosition(0);
+    }
+    
+    private void updateNowPlaying() {
+        Track track = spotifyController.getNowPlaying().getCurrent();
+        if (track == null) {
+            nowPlayingLabel.setText("Nothing playing");
+            nowPlayingLabel.setIcon(null);
+            return;
+        }
+        nowPlayingLabel.setText(track.describe());
+        ArtworkCache artworkCache = spotifyController.getArtworkCache();
+        BufferedImage artwork = artworkCache.getCached(track.getArtworkUrl(), ArtworkCache.DISK_SIZE);
+        nowPlayingLabel.setIcon(artwork == null ? null : new ImageIcon(artwork));
+        if (artwork == null) {
+            artworkCache.load(track.getArtworkUrl(), ArtworkCache.DISK_SIZE)
+                    .thenAccept(loaded -> SwingUtilities.invokeLater(() -> {
+                        if (loaded != null && track.describe().equals(nowPlayingLabel.getText())) {
+                            nowPlayingLabel.setIcon(new ImageIcon(loaded));
+                            pack();
+                        }
+                    }));
+        }
+    }
+    
+    @Override
+    public void setVisible(boolean visible) {
+        if (visible) {
+            updateLatencySummary();
+            updateNowPlaying();
+            pack();
+        }
+        super.setVisible(visible);
+    }
+    
     private void loadCurrentSettings() {
         hotkeyFields.get("skip_forward").setText(configManager.getHotkey("skip_forward"));
         hotkeyFields.get("skip_backward").setText(configManager.getHotkey("skip_backward"));
@@ -273,7 +371,7 @@ public class SettingsGUI extends JFrame {
         java.util.Set<String> usedHotkeys = new java.util.HashSet<>();
         
         for (Map.Entry<String, JTextField> entry : hotkeyFields.entrySet()) {
-            String hotkey = entry.getValue().getText().trim();
+            String hotkey = normalizeChord(entry.getValue().getText());
             
             if (hotkey.isEmpty()) {
                 JOptionPane.showMessageDialog(this, 
@@ -292,6 +390,29 @@ public class SettingsGUI extends JFrame {
             usedHotkeys.add(hotkey);
         }
         
+        // A chord can never fire if its opening strokes are already another hotkey.
+        for (String hotkey : usedHotkeys) {
+            for (String other : usedHotkeys) {
+                if (other.startsWith(hotkey + ", ")) {
+                    JOptionPane.showMessageDialog(this, 
+                        "Hotkey " + hotkey + " blocks the chord " + other, 
+                        "Validation Error", JOptionPane.ERROR_MESSAGE);
+                    return false;
+                }
+            }
+        }
+        
         return true;
     }
+    
+    private static String normalizeChord(String hotkey) {
+        StringBuilder normalized = new StringBuilder();
+        for (String stroke : hotkey.split(",")) {
+            if (normalized.length() > 0) {
+                normalized.append(", ");
+            }
+            normalized.append(stroke.trim());
+        }
+        return normalized.toString().trim();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.modulatify;
+
+public enum SpotifyCommand {
+    SKIP_FORWARD("skip_forward", Resource.PLAYBACK, Kind.SKIP, 1, 2500, RepeatPolicy.FIRE_ONCE),
+    SKIP_BACKWARD("skip_backward", Resource.PLAYBACK, Kind.SKIP, -1, 2500, RepeatPolicy.FIRE_ONCE),
+    PLAY_PAUSE("play_pause", Resource.PLAYBACK, Kind.TOGGLE, 1, 2500, RepeatPolicy.FIRE_ONCE),
+    VOLUME_DOWN("volume_down", Resource.VOLUME, Kind.VOLUME, -1, 1500, RepeatPolicy.RAMP),
+    VOLUME_UP("volume_up", Resource.VOLUME, Kind.VOLUME, 1, 1500, RepeatPolicy.RAMP);
+    
+    // Commands sharing a resource are executed in submission order; different resources run in parallel.
+    public enum Resource {
+        PLAYBACK,
+        VOLUME
+    }
+    
+    // Consecutive commands of the same kind can be folded into one by summing their deltas.
+    // A command that could not be sent while offline is replayed only within the kind's journal age limit.
+    public enum Kind {
+        SKIP(30_000),
+        TOGGLE(120_000),
+        VOLUME(300_000);
+        
+        private final long journalMaxAgeMillis;
+        
+        Kind(long journalMaxAgeMillis) {
+            this.journalMaxAgeMillis = journalMaxAgeMillis;
+        }
+        
+        public long getJournalMaxAgeMillis() {
+            return journalMaxAgeMillis;
+        }
+    }
+    
+    private static final SpotifyCommand[] VALUES = values();
+    
+    private final String actionId;
+    private final Resource resource;
+    private final Kind kind;
+    private final int delta;
+    private final long latencyBudgetMillis;
+    private final RepeatPolicy defaultRepeatPolicy;
+    
+    SpotifyCommand(String actionId, Resource resource, Kind kind, int delta, long latencyBudgetMillis,
+                   RepeatPolicy defaultRepeatPolicy) {
+        this.actionId = actionId;
+        this.resource = resource;
+        this.kind = kind;
+        this.delta = delta;
+        this.latencyBudgetMillis = latencyBudgetMillis;
+        this.defaultRepeatPolicy = defaultRepeatPolicy;
+    }
+    
+    public String getActionId() {
+        return actionId;
+    }
+    
+    public Resource getResource() {
+        return resource;
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    public int getDelta() {
+        return delta;
+    }
+    
+    // A press that cannot complete within this budget is dropped rather than applied late.
+    public long getLatencyBudgetMillis() {
+        return latencyBudgetMillis;
+    }
+    
+    public RepeatPolicy getDefaultRepeatPolicy() {
+        return defaultRepeatPolicy;
+    }
+    
+    public static SpotifyCommand fromActionId(String actionId) {
+        for (SpotifyCommand command : VALUES) {
+            if (command.actionId.equals(actionId)) {
+                return command;
+            }
+        }
+        return null;
+    }
+}
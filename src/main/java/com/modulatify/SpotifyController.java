@@ -1,36 +1,166 @@
 package com.modulatify;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import okhttp3.*;
 import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
 import java.net.URLEncoder;
+import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.logging.Logger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class SpotifyController {
-    private static final Logger logger = Logger.getLogger(SpotifyController.class.getName());
+    private static final Log logger = Log.get(SpotifyController.class);
     
     private static final String CLIENT_ID = "your_spotify_client_id";
     private static final String CLIENT_SECRET = "your_spotify_client_secret";
     private static final String REDIRECT_URI = "http://localhost:8080/callback";
-    private static final String SPOTIFY_API_BASE = "https://api.spotify.com/v1";
-    private static final String SPOTIFY_ACCOUNTS_BASE = "https://accounts.spotify.com";
+    private static final int VOLUME_STEP = 10;
+    private static final int MAX_PIPELINED_SKIPS = 10;
+    private static final long TOKEN_WAIT_MS = 10_000;
+    private static final long MAX_RATE_LIMIT_WAIT_MS = 3_000;
+    private static final long TOKEN_CALL_TIMEOUT_MS = 10_000;
+    private static final long STATE_READ_TIMEOUT_MS = 5_000;
+    private static final long MIN_RETRY_BUDGET_MS = 250;
+    private static final int MAX_ATTEMPTS = 2;
+    private static final int UNAUTHORIZED = 401;
+    private static final int NOT_FOUND = 404;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final MediaType JSON = MediaType.get("application/json");
+    // Covers fetched ahead for the queue: enough for a burst of skips without downloading the whole queue.
+    private static final int PREFETCHED_ARTWORK = 3;
+    // The request never left this machine (no DNS, no route, connection refused), so Spotify cannot have applied it.
+    private static final int NOT_CONNECTED = -2;
     
     private final ConfigManager configManager;
-    private final OkHttpClient httpClient;
+    private final SpotifyTransport transport;
+    private final String apiBase;
+    private final String accountsBase;
     private final ObjectMapper objectMapper;
-    private int currentVolume = 50;
+    private final PlayerStateParser playerStateParser;
+    private final PlayerStateCache playerStateCache;
+    private final DeviceRegistry deviceRegistry;
+    private final NowPlaying nowPlaying;
+    private final ArtworkCache artworkCache;
+    private volatile int[] artworkSizes = {ArtworkCache.DISK_SIZE};
+    private final TokenRefreshScheduler tokenRefreshScheduler;
+    private final ConnectionWarmer connectionWarmer;
+    private final RateLimiter rateLimiter;
+    private final CircuitBreaker apiBreaker;
+    private final CircuitBreaker accountsBreaker;
+    private final CommandJournal journal;
+    private final ExecutorService replayExecutor;
+    private final AtomicBoolean replaying = new AtomicBoolean();
+    private volatile Consumer<String> connectionListener;
     
     public SpotifyController(ConfigManager configManager) {
+        this(configManager, SpotifyTransport.fromConfig(configManager));
+    }
+    
+    // Allows pointing the controller at a local stub server, e.g. for benchmarks.
+    public SpotifyController(ConfigManager configManager, String apiBase, String accountsBase) {
+        this(configManager, new SpotifyTransport(apiBase, accountsBase));
+    }
+    
+    public SpotifyController(ConfigManager configManager, SpotifyTransport transport) {
         this.configManager = configManager;
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(10, TimeUnit.SECONDS)
-                .readTimeout(10, TimeUnit.SECONDS)
-                .build();
+        this.transport = transport;
+        this.apiBase = transport.getApiBase();
+        this.accountsBase = transport.getAccountsBase();
         this.objectMapper = new ObjectMapper();
+        this.playerStateParser = new PlayerStateParser(objectMapper);
+        this.playerStateCache = new PlayerStateCache();
+        this.deviceRegistry = new DeviceRegistry(configManager);
+        this.nowPlaying = new NowPlaying(objectMapper.getFactory());
+        this.artworkCache = new ArtworkCache(configManager.getConfigDirectory().resolve("artwork"),
+                transport.getHttpClient(), configManager.getArtworkDiskBudgetBytes());
+        this.tokenRefreshScheduler = new TokenRefreshScheduler(configManager, this::refreshAccessToken);
+        this.connectionWarmer = new ConnectionWarmer(transport.getHttpClient(), transport.getDns(), apiBase, accountsBase);
+        this.rateLimiter = new RateLimiter(configManager.getRateLimitBurst(), configManager.getRateLimitPerSecond());
+        this.apiBreaker = CircuitBreaker.fromConfig(HttpUrl.get(apiBase).host(), configManager);
+        this.accountsBreaker = CircuitBreaker.fromConfig(HttpUrl.get(accountsBase).host(), configManager);
+        apiBreaker.setStateListener(state -> onBreakerStateChanged(apiBreaker, apiBase, state));
+        accountsBreaker.setStateListener(state -> onBreakerStateChanged(accountsBreaker, accountsBase, state));
+        this.journal = new CommandJournal(configManager.getConfigDirectory().resolve("journal.log"));
+        this.replayExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("modulatify-journal"));
+    }
+    
+    public void start() {
+        journal.load();
+        connectionWarmer.start();
+        tokenRefreshScheduler.start();
+        scheduleReplay();
+    }
+    
+    public void shutdown() {
+        replayExecutor.shutdownNow();
+        artworkCache.shutdown();
+        tokenRefreshScheduler.stop();
+        connectionWarmer.stop();
+    }
+    
+    public PlayerStateCache getPlayerStateCache() {
+        return playerStateCache;
+    }
+    
+    public DeviceRegistry getDeviceRegistry() {
+        return deviceRegistry;
+    }
+    
+    public NowPlaying getNowPlaying() {
+        return nowPlaying;
+    }
+    
+    public ArtworkCache getArtworkCache() {
+        return artworkCache;
+    }
+    
+    // The sizes cover art is drawn at (e.g. the tray icon), so prefetched art is scaled ahead of time too.
+    public void setArtworkSizes(int... sizes) {
+        this.artworkSizes = sizes.clone();
+    }
+    
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+    
+    // A user-facing description of an unreachable Spotify host, or null while both hosts are reachable.
+    public String getConnectionStatus() {
+        if (apiBreaker.getState() != CircuitBreaker.State.CLOSED) {
+            return "Spotify unreachable, presses are queued";
+        }
+        if (accountsBreaker.getState() != CircuitBreaker.State.CLOSED) {
+            return "Spotify login unreachable";
+        }
+        return null;
+    }
+    
+    public void setConnectionListener(Consumer<String> connectionListener) {
+        this.connectionListener = connectionListener;
+    }
+    
+    private void onBreakerStateChanged(CircuitBreaker breaker, String baseUrl, CircuitBreaker.State state) {
+        if (state == CircuitBreaker.State.OPEN) {
+            connectionWarmer.probeUntilClosed(baseUrl, breaker);
+        } else if (state == CircuitBreaker.State.CLOSED && breaker == apiBreaker) {
+            scheduleReplay();
+        }
+        Consumer<String> listener = connectionListener;
+        if (listener != null) {
+            listener.accept(getConnectionStatus());
+        }
     }
     
     public boolean isAuthenticated() {
@@ -43,16 +173,21 @@ public class SpotifyController {
         return System.currentTimeMillis() < expiresAt;
     }
     
+    public boolean hasRefreshToken() {
+        String refreshToken = configManager.getSpotifyRefreshToken();
+        return refreshToken != null && !refreshToken.isEmpty();
+    }
+    
     public String getAuthorizationUrl() {
         String scope = "user-read-playback-state user-modify-playback-state";
         try {
-            return SPOTIFY_ACCOUNTS_BASE + "/authorize?" +
+            return accountsBase + "/authorize?" +
                     "client_id=" + URLEncoder.encode(CLIENT_ID, StandardCharsets.UTF_8) +
                     "&response_type=code" +
                     "&redirect_uri=" + URLEncoder.encode(REDIRECT_URI, StandardCharsets.UTF_8) +
                     "&scope=" + URLEncoder.encode(scope, StandardCharsets.UTF_8);
         } catch (Exception e) {
-            logger.severe("Failed to create authorization URL: " + e.getMessage());
+            logger.severe("Failed to create authorization URL: {}", e.getMessage());
             return "";
         }
     }
@@ -68,43 +203,54 @@ public class SpotifyController {
                     .build();
             
             Request request = new Request.Builder()
-                    .url(SPOTIFY_ACCOUNTS_BASE + "/api/token")
+                    .url(accountsBase + "/api/token")
                     .header("Authorization", "Basic " + credentials)
                     .post(formBody)
                     .build();
             
-            try (Response response = httpClient.newCall(request).execute()) {
+            try (Response response = execute(accountsBreaker, request, TOKEN_CALL_TIMEOUT_MS)) {
                 if (response.isSuccessful() && response.body() != null) {
-                    JsonNode jsonResponse = objectMapper.readTree(response.body().string());
+                    TokenResponse tokens = TokenResponse.parse(objectMapper.getFactory(), response.body().byteStream());
+                    if (tokens.getRefreshToken() == null) {
+                        logger.warning("Token response did not include a refresh token");
+                        return false;
+                    }
                     
-                    String accessToken = jsonResponse.get("access_token").asText();
-                    String refreshToken = jsonResponse.get("refresh_token").asText();
-                    int expiresIn = jsonResponse.get("expires_in").asInt();
-                    
-                    configManager.setSpotifyAccessToken(accessToken);
-                    configManager.setSpotifyRefreshToken(refreshToken);
-                    configManager.setTokenExpiresAt(System.currentTimeMillis() + (expiresIn * 1000L));
+                    configManager.setSpotifyAccessToken(tokens.getAccessToken());
+                    configManager.setSpotifyRefreshToken(tokens.getRefreshToken());
+                    configManager.setTokenExpiresAt(System.currentTimeMillis() + (tokens.getExpiresIn() * 1000L));
+                    tokenRefreshScheduler.onTokenUpdated();
                     
                     logger.info("Successfully obtained Spotify tokens");
                     return true;
                 } else {
-                    logger.warning("Failed to exchange code for tokens: " + response.code());
+                    logger.warning("Failed to exchange code for tokens: {}", response.code());
                     return false;
                 }
             }
         } catch (Exception e) {
-            logger.severe("Error exchanging code for tokens: " + e.getMessage());
+            logger.severe("Error exchanging code for tokens: {}", e.getMessage());
             return false;
         }
     }
     
     public boolean refreshAccessToken() {
+        String refreshToken = configManager.getSpotifyRefreshToken();
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            return false;
+        }
+        
+        FlightEvents.TokenRefresh event = new FlightEvents.TokenRefresh();
+        event.status = -1;
+        event.begin();
+        boolean refreshed = requestAccessToken(refreshToken, event);
+        event.succeeded = refreshed;
+        event.commit();
+        return refreshed;
+    }
+    
+    private boolean requestAccessToken(String refreshToken, FlightEvents.TokenRefresh event) {
         try {
-            String refreshToken = configManager.getSpotifyRefreshToken();
-            if (refreshToken == null || refreshToken.isEmpty()) {
-                return false;
-            }
-            
             String credentials = Base64.getEncoder().encodeToString((CLIENT_ID + ":" + CLIENT_SECRET).getBytes());
             
             RequestBody formBody = new FormBody.Builder()
@@ -113,127 +259,602 @@ public class SpotifyController {
                     .build();
             
             Request request = new Request.Builder()
-                    .url(SPOTIFY_ACCOUNTS_BASE + "/api/token")
+                    .url(accountsBase + "/api/token")
                     .header("Authorization", "Basic " + credentials)
                     .post(formBody)
                     .build();
             
-            try (Response response = httpClient.newCall(request).execute()) {
+            try (Response response = execute(accountsBreaker, request, TOKEN_CALL_TIMEOUT_MS)) {
+                event.status = response.code();
                 if (response.isSuccessful() && response.body() != null) {
-                    JsonNode jsonResponse = objectMapper.readTree(response.body().string());
+                    TokenResponse tokens = TokenResponse.parse(objectMapper.getFactory(), response.body().byteStream());
                     
-                    String accessToken = jsonResponse.get("access_token").asText();
-                    int expiresIn = jsonResponse.get("expires_in").asInt();
-                    
-                    configManager.setSpotifyAccessToken(accessToken);
-                    configManager.setTokenExpiresAt(System.currentTimeMillis() + (expiresIn * 1000L));
+                    configManager.setSpotifyAccessToken(tokens.getAccessToken());
+                    if (tokens.getRefreshToken() != null) {
+                        configManager.setSpotifyRefreshToken(tokens.getRefreshToken());
+                    }
+                    configManager.setTokenExpiresAt(System.currentTimeMillis() + (tokens.getExpiresIn() * 1000L));
                     
                     logger.info("Successfully refreshed Spotify access token");
                     return true;
                 } else {
-                    logger.warning("Failed to refresh access token: " + response.code());
+                    logger.warning("Failed to refresh access token: {}", response.code());
                     return false;
                 }
             }
         } catch (Exception e) {
-            logger.severe("Error refreshing access token: " + e.getMessage());
+            logger.severe("Error refreshing access token: {}", e.getMessage());
             return false;
         }
     }
     
-    private boolean ensureValidToken() {
-        if (!isAuthenticated()) {
-            return refreshAccessToken();
-        }
-        return true;
+    private boolean ensureValidToken(CommandContext context) {
+        long start = System.nanoTime();
+        boolean valid = tokenRefreshScheduler.awaitValidToken(Math.min(TOKEN_WAIT_MS, context.remainingMillis()));
+        context.addTokenNanos(System.nanoTime() - start);
+        return valid;
     }
     
     public void skipForward() {
-        if (!ensureValidToken()) {
-            logger.warning("No valid token for skip forward");
-            return;
-        }
-        
-        makeSpotifyRequest("POST", "/me/player/next", null);
+        skip(1, CommandContext.forCommand(SpotifyCommand.SKIP_FORWARD));
     }
     
     public void skipBackward() {
-        if (!ensureValidToken()) {
-            logger.warning("No valid token for skip backward");
+        skip(-1, CommandContext.forCommand(SpotifyCommand.SKIP_BACKWARD));
+    }
+    
+    // A positive count skips forward, a negative count skips backward; repeated skips are sent as one pipelined burst.
+    public void skip(int count, CommandContext context) {
+        if (count == 0) {
             return;
         }
         
-        makeSpotifyRequest("POST", "/me/player/previous", null);
+        if (!ensureValidToken(context)) {
+            logger.warning("No valid token for skip");
+            return;
+        }
+        
+        int skips = Math.min(Math.abs(count), MAX_PIPELINED_SKIPS);
+        String endpoint = count > 0 ? "/me/player/next" : "/me/player/previous";
+        int succeeded;
+        if (skips == 1) {
+            int code = makePlayerRequest("POST", endpoint, context);
+            succeeded = isSuccessful(code) ? 1 : 0;
+            if (shouldJournal("POST", code, context)) {
+                journal.record(SpotifyCommand.Kind.SKIP, Integer.signum(count));
+            }
+        } else {
+            String deviceEndpoint = withDevice(endpoint, deviceRegistry.getTargetDeviceId());
+            succeeded = makePipelinedRequests("POST", deviceEndpoint, skips, Integer.signum(count), context);
+        }
+        if (succeeded > 0) {
+            nowPlaying.onSkipped(succeeded * Integer.signum(count));
+            playerStateCache.requestRefresh();
+        }
     }
     
     public void togglePlayPause() {
-        if (!ensureValidToken()) {
+        togglePlayPause(CommandContext.forCommand(SpotifyCommand.PLAY_PAUSE));
+    }
+    
+    // Works from the cached state with a single round trip; falls back to a fresh read when the cache is cold.
+    public void togglePlayPause(CommandContext context) {
+        if (!ensureValidToken(context)) {
             logger.warning("No valid token for play/pause");
             return;
         }
         
         try {
-            JsonNode playerState = getPlayerState();
-            if (playerState != null && playerState.has("is_playing")) {
-                boolean isPlaying = playerState.get("is_playing").asBoolean();
-                if (isPlaying) {
-                    makeSpotifyRequest("PUT", "/me/player/pause", null);
-                } else {
-                    makeSpotifyRequest("PUT", "/me/player/play", null);
-                }
+            PlayerState state = playerStateCache.get();
+            if (state == null) {
+                state = refreshPlayerState(context);
+            }
+            
+            boolean play = state == null || !state.isPlaying();
+            playerStateCache.updateOptimistically(current -> current.withPlaying(play));
+            
+            int code = makePlayerRequest("PUT", play ? "/me/player/play" : "/me/player/pause", context);
+            if (isSuccessful(code)) {
+                journal.supersede(SpotifyCommand.Kind.TOGGLE);
+            } else if (shouldJournal("PUT", code, context)) {
+                // Keep the optimistic state so further presses while offline toggle from it.
+                journal.record(SpotifyCommand.Kind.TOGGLE, play ? 1 : 0);
+            } else {
+                reconcilePlayback(play, context);
             }
         } catch (Exception e) {
-            logger.warning("Error toggling play/pause: " + e.getMessage());
+            logger.warning("Error toggling play/pause: {}", e.getMessage());
         }
     }
     
-    public void volumeUp() {
-        if (!ensureValidToken()) {
-            logger.warning("No valid token for volume up");
+    // The cache disagreed with Spotify (e.g. 403 when pausing an already paused player): re-read and apply the real toggle.
+    private void reconcilePlayback(boolean attemptedPlay, CommandContext context) throws IOException {
+        PlayerState actual = context.isExpired() ? null : refreshPlayerState(context);
+        if (actual == null) {
+            playerStateCache.invalidate();
+            return;
+        }
+        if (!actual.hasActiveDevice() || actual.isPlaying() != attemptedPlay) {
             return;
         }
         
-        currentVolume = Math.min(100, currentVolume + 10);
-        setVolume(currentVolume);
+        logger.info("Player state was stale, retrying play/pause against fresh state");
+        boolean play = !actual.isPlaying();
+        playerStateCache.updateOptimistically(current -> current.withPlaying(play));
+        if (!isSuccessful(makePlayerRequest("PUT", play ? "/me/player/play" : "/me/player/pause", context))) {
+            playerStateCache.invalidate();
+        }
+    }
+    
+    public void volumeUp() {
+        adjustVolume(1, CommandContext.forCommand(SpotifyCommand.VOLUME_UP));
     }
     
     public void volumeDown() {
-        if (!ensureValidToken()) {
-            logger.warning("No valid token for volume down");
+        adjustVolume(-1, CommandContext.forCommand(SpotifyCommand.VOLUME_DOWN));
+    }
+    
+    // Applies the net number of volume steps as a single absolute-volume request based on the cached volume.
+    public void adjustVolume(int steps, CommandContext context) {
+        if (steps == 0) {
             return;
         }
         
-        currentVolume = Math.max(0, currentVolume - 10);
-        setVolume(currentVolume);
+        if (!ensureValidToken(context)) {
+            logger.warning("No valid token for volume change");
+            return;
+        }
+        
+        try {
+            PlayerState state = playerStateCache.get();
+            if (state == null || state.getVolumePercent() == PlayerState.UNKNOWN_VOLUME) {
+                state = refreshPlayerState(context);
+            }
+            if (state == null || state.getVolumePercent() == PlayerState.UNKNOWN_VOLUME) {
+                logger.warning("Current volume unknown, skipping volume change");
+                return;
+            }
+            
+            int volume = Math.max(0, Math.min(100, state.getVolumePercent() + steps * VOLUME_STEP));
+            if (volume == state.getVolumePercent()) {
+                // Already at the limit, e.g. a volume key held past 0 or 100.
+                return;
+            }
+            playerStateCache.updateOptimistically(current -> current.withVolumePercent(volume));
+            int code = setVolume(volume, context);
+            if (isSuccessful(code)) {
+                journal.supersede(SpotifyCommand.Kind.VOLUME);
+            } else if (shouldJournal("PUT", code, context)) {
+                // Keep the optimistic volume so further presses while offline step from the journaled target.
+                journal.record(SpotifyCommand.Kind.VOLUME, volume);
+            } else {
+                playerStateCache.invalidate();
+            }
+        } catch (Exception e) {
+            logger.warning("Error changing volume: {}", e.getMessage());
+        }
+    }
+    
+    private int setVolume(int volume, CommandContext context) {
+        return makePlayerRequest("PUT", "/me/player/volume?volume_percent=" + volume, context);
+    }
+    
+    // Sends a player command addressed to the target device. Spotify answers 404 when that device is gone or none
+    // is active. If the device list shows another device active (playback moved since the last poll), the command
+    // follows it; only when none is active is playback transferred to the last used device (or another available
+    // one). Either way the command is sent once more.
+    private int makePlayerRequest(String method, String endpoint, CommandContext context) {
+        String targetId = deviceRegistry.getTargetDeviceId();
+        boolean targetWasActive = deviceRegistry.hasActiveDevice();
+        int code = makeSpotifyRequest(method, withDevice(endpoint, targetId), null, context);
+        if (code != NOT_FOUND || context.remainingMillis() < MIN_RETRY_BUDGET_MS) {
+            return code;
+        }
+        deviceRegistry.onNoActiveDevice();
+        
+        // A cached list is only trusted if it was fetched because no device was active; if the command went to a
+        // device thought active, the cached view is stale too.
+        List<DeviceRegistry.Device> devices = listDevices(targetWasActive, context);
+        DeviceRegistry.Device active = DeviceRegistry.findActive(devices, targetId);
+        if (active != null) {
+            logger.info("Spotify playback moved to {}, sending {} there", active.getName(), endpoint);
+            deviceRegistry.onDeviceActivated(active.getId());
+            playerStateCache.requestRefresh();
+            return makeSpotifyRequest(method, withDevice(endpoint, active.getId()), null, context);
+        }
+        if (endpoint.equals("/me/player/pause")) {
+            // Nothing is playing anywhere.
+            return code;
+        }
+        
+        DeviceRegistry.Device target = devices == null ? null : deviceRegistry.chooseWakeTarget(devices);
+        if (target == null) {
+            logger.warning("No Spotify device available for {}", endpoint);
+            return code;
+        }
+        logger.info("No active Spotify device, transferring playback to {}", target.getName());
+        boolean play = endpoint.equals("/me/player/play");
+        int transferred = transferPlayback(target.getId(), play, context);
+        if (!isSuccessful(transferred)) {
+            return transferred;
+        }
+        deviceRegistry.onDeviceActivated(target.getId());
+        playerStateCache.requestRefresh();
+        // Transferring with play set has already started playback.
+        return play ? transferred : makeSpotifyRequest(method, withDevice(endpoint, target.getId()), null, context);
+    }
+    
+    // The device list, from the cache unless refresh is set; null if it could not be read in time.
+    private List<DeviceRegistry.Device> listDevices(boolean refresh, CommandContext context) {
+        List<DeviceRegistry.Device> devices = refresh ? null : deviceRegistry.getDevices();
+        if (devices == null) {
+            long start = System.nanoTime();
+            try {
+                devices = fetchDevices(context.remainingMillis());
+            } catch (IOException e) {
+                logger.warning("Failed to list Spotify devices: {}", e.getMessage());
+            } finally {
+                context.addHttpNanos(System.nanoTime() - start);
+            }
+        }
+        return devices;
+    }
+    
+    private int transferPlayback(String deviceId, boolean play, CommandContext context) {
+        ObjectNode transfer = objectMapper.createObjectNode();
+        transfer.putArray("device_ids").add(deviceId);
+        transfer.put("play", play);
+        return makeSpotifyRequest("PUT", "/me/player", RequestBody.create(transfer.toString(), JSON), context);
+    }
+    
+    // Appends the target device so Spotify does not have to work one out; unchanged if there is none.
+    private static String withDevice(String endpoint, String deviceId) {
+        if (deviceId == null) {
+            return endpoint;
+        }
+        return endpoint + (endpoint.indexOf('?') < 0 ? '?' : '&') + "device_id="
+                + URLEncoder.encode(deviceId, StandardCharsets.UTF_8);
+    }
+    
+    // Reads /me/player/devices into the registry; returns null if the list could not be read in time.
+    private List<DeviceRegistry.Device> fetchDevices(long timeoutMs) throws IOException {
+        if (timeoutMs <= 0 || !rateLimiter.tryAcquire(1)) {
+            return null;
+        }
+        
+        Request request = new Request.Builder()
+                .url(apiBase + "/me/player/devices")
+                .header("Authorization", "Bearer " + configManager.getSpotifyAccessToken())
+                .get()
+                .build();
+        
+        try (Response response = executeApiRequest(request, timeoutMs)) {
+            if (!response.isSuccessful() || response.body() == null) {
+                logger.fine("Failed to list devices: {}", response.code());
+                return null;
+            }
+            List<DeviceRegistry.Device> devices = DeviceRegistry.parse(objectMapper.getFactory(), response.body().byteStream());
+            deviceRegistry.updateDevices(devices);
+            return devices;
+        }
     }
     
-    private void setVolume(int volume) {
-        makeSpotifyRequest("PUT", "/me/player/volume?volume_percent=" + volume, null);
+    // A command is journaled when Spotify was unreachable and has certainly not applied it. One that merely ran out
+    // of latency budget is dropped as before rather than applied late. Idempotent volume and play/pause PUTs may
+    // also be journaled after server errors; a skip only when it never left (no connection or the breaker was open),
+    // because after a gateway error it may already have moved the track.
+    private boolean shouldJournal(String method, int code, CommandContext context) {
+        if (context.isExpired()) {
+            return false;
+        }
+        return "POST".equals(method) ? code == NOT_CONNECTED : isRetryable(method, code);
     }
     
-    private JsonNode getPlayerState() throws IOException {
+    private void scheduleReplay() {
+        if (!journal.isEmpty() && replaying.compareAndSet(false, true)) {
+            try {
+                replayExecutor.execute(this::replayJournal);
+            } catch (RejectedExecutionException e) {
+                replaying.set(false);
+            }
+        }
+    }
+    
+    // Replays journaled commands oldest-first; stops at the first one Spotify is still unreachable for.
+    private void replayJournal() {
+        try {
+            CommandJournal.Entry entry;
+            while ((entry = journal.peek()) != null) {
+                if (!replay(entry)) {
+                    logger.info("Spotify still unreachable, keeping journaled {}", entry);
+                    return;
+                }
+                logger.info("Replayed journaled {}", entry);
+                journal.complete(entry);
+            }
+        } finally {
+            replaying.set(false);
+        }
+    }
+    
+    // Returns false if the entry should stay journaled; errors other than unreachability (e.g. no active device)
+    // discard it, since replaying it again would fail the same way.
+    private boolean replay(CommandJournal.Entry entry) {
+        int value = entry.getValue();
+        switch (entry.getKind()) {
+            case SKIP: {
+                SpotifyCommand command = value > 0 ? SpotifyCommand.SKIP_FORWARD : SpotifyCommand.SKIP_BACKWARD;
+                CommandContext context = CommandContext.forCommand(command);
+                if (!ensureValidToken(context)) {
+                    return false;
+                }
+                String endpoint = value > 0 ? "/me/player/next" : "/me/player/previous";
+                for (int i = Math.min(Math.abs(value), MAX_PIPELINED_SKIPS); i > 0; i--) {
+                    if (isDeferred("POST", makePlayerRequest("POST", endpoint, context))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case TOGGLE: {
+                CommandContext context = CommandContext.forCommand(SpotifyCommand.PLAY_PAUSE);
+                if (!ensureValidToken(context)) {
+                    return false;
+                }
+                boolean play = value != 0;
+                int code = makePlayerRequest("PUT", play ? "/me/player/play" : "/me/player/pause", context);
+                if (isSuccessful(code)) {
+                    playerStateCache.updateOptimistically(current -> current.withPlaying(play));
+                }
+                return !isDeferred("PUT", code);
+            }
+            case VOLUME: {
+                CommandContext context = CommandContext.forCommand(SpotifyCommand.VOLUME_UP);
+                if (!ensureValidToken(context)) {
+                    return false;
+                }
+                int code = setVolume(value, context);
+                if (isSuccessful(code)) {
+                    playerStateCache.updateOptimistically(current -> current.withVolumePercent(value));
+                }
+                return !isDeferred("PUT", code);
+            }
+            default:
+                return true;
+        }
+    }
+    
+    private static boolean isDeferred(String method, int code) {
+        return isRetryable(method, code) || code == TOO_MANY_REQUESTS;
+    }
+    
+    public PlayerState refreshPlayerState() throws IOException {
+        PlayerState state = refreshPlayerState(STATE_READ_TIMEOUT_MS);
+        // With nothing active the next press will need a device to wake, so list them now, off the press path.
+        if (state != null && !state.hasActiveDevice() && deviceRegistry.getDevices() == null) {
+            fetchDevices(STATE_READ_TIMEOUT_MS);
+        }
+        // Likewise, prefetch what a skip will lead to once the track has changed. The state read has already
+        // succeeded, so a failed prefetch only costs the prediction.
+        if (state != null && nowPlaying.needsQueue(state)) {
+            try {
+                fetchQueue(STATE_READ_TIMEOUT_MS);
+            } catch (IOException e) {
+                logger.fine("Failed to read queue: {}", e.getMessage());
+            }
+        }
+        return state;
+    }
+    
+    private void prefetchArtwork() {
+        List<String> urls = new ArrayList<>(PREFETCHED_ARTWORK + 1);
+        Track current = nowPlaying.getCurrent();
+        if (current != null && current.getArtworkUrl() != null) {
+            urls.add(current.getArtworkUrl());
+        }
+        for (Track track : nowPlaying.getUpcoming()) {
+            if (urls.size() > PREFETCHED_ARTWORK) {
+                break;
+            }
+            if (track.getArtworkUrl() != null && !urls.contains(track.getArtworkUrl())) {
+                urls.add(track.getArtworkUrl());
+            }
+        }
+        artworkCache.prefetch(urls, artworkSizes);
+    }
+    
+    private void fetchQueue(long timeoutMs) throws IOException {
+        if (!rateLimiter.tryAcquire(1)) {
+            return;
+        }
+        
+        Request request = new Request.Builder()
+                .url(apiBase + "/me/player/queue")
+                .header("Authorization", "Bearer " + configManager.getSpotifyAccessToken())
+                .get()
+                .build();
+        
+        try (Response response = executeApiRequest(request, timeoutMs)) {
+            // 204 means there is no queue to read.
+            if (response.code() == 204) {
+                return;
+            }
+            if (response.isSuccessful() && response.body() != null) {
+                nowPlaying.updateQueue(response.body().byteStream());
+                prefetchArtwork();
+            } else {
+                logger.fine("Failed to read queue: {}", response.code());
+            }
+        }
+    }
+    
+    private PlayerState refreshPlayerState(CommandContext context) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return refreshPlayerState(context.remainingMillis());
+        } finally {
+            context.addHttpNanos(System.nanoTime() - start);
+        }
+    }
+    
+    // Reads /me/player and stores the result in the cache; returns null if the state could not be read in time.
+    private PlayerState refreshPlayerState(long timeoutMs) throws IOException {
+        if (timeoutMs <= 0 || !tokenRefreshScheduler.awaitValidToken(Math.min(TOKEN_WAIT_MS, timeoutMs))) {
+            return null;
+        }
+        
+        if (!rateLimiter.tryAcquire(1)) {
+            logger.fine("Skipping player state read: {}", rateLimiter.getStatus());
+            return null;
+        }
+        
         String accessToken = configManager.getSpotifyAccessToken();
         
         Request request = new Request.Builder()
-                .url(SPOTIFY_API_BASE + "/me/player")
+                .url(apiBase + "/me/player")
                 .header("Authorization", "Bearer " + accessToken)
                 .get()
                 .build();
         
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (response.isSuccessful() && response.body() != null) {
-                return objectMapper.readTree(response.body().string());
+        try (Response response = executeApiRequest(request, timeoutMs)) {
+            long now = System.nanoTime();
+            PlayerState state;
+            if (response.code() == 204) {
+                state = PlayerState.inactive(now);
+            } else if (response.isSuccessful() && response.body() != null) {
+                state = playerStateParser.parse(response.body().byteStream(), now);
+            } else {
+                logger.fine("Failed to read player state: {}", response.code());
+                if (response.code() == UNAUTHORIZED) {
+                    // The next read joins the refresh this triggers.
+                    tokenRefreshScheduler.invalidate(accessToken);
+                }
+                return null;
             }
+            playerStateCache.update(state);
+            deviceRegistry.onPlayerState(state);
+            nowPlaying.onPlayerState(state);
+            return state;
         }
-        return null;
     }
     
-    private void makeSpotifyRequest(String method, String endpoint, RequestBody body) {
+    private Call newCall(Request request, long timeoutMs) {
+        return transport.newCall(request, timeoutMs);
+    }
+    
+    private Response executeApiRequest(Request request, long timeoutMs) throws IOException {
+        Response response = execute(apiBreaker, request, timeoutMs);
+        recordRateLimit(response);
+        return response;
+    }
+    
+    // Fails fast while the host's breaker is open; otherwise sends the request and reports how it went.
+    private Response execute(CircuitBreaker breaker, Request request, long timeoutMs) throws IOException {
+        if (!breaker.tryAcquire()) {
+            throw new CircuitBreaker.OpenException(breaker.getHost());
+        }
+        long start = System.nanoTime();
+        try {
+            Response response = newCall(request, timeoutMs).execute();
+            breaker.onResult(response.code() < 500, System.nanoTime() - start);
+            return response;
+        } catch (IOException e) {
+            breaker.onFailure(e, System.nanoTime() - start);
+            throw e;
+        } catch (RuntimeException e) {
+            breaker.onResult(false, System.nanoTime() - start);
+            throw e;
+        }
+    }
+    
+    private void recordRateLimit(Response response) {
+        if (response.code() == TOO_MANY_REQUESTS) {
+            rateLimiter.onRateLimited(response.header("Retry-After"));
+        } else if (response.isSuccessful()) {
+            rateLimiter.onSuccess();
+            // Spotify is reachable again.
+            scheduleReplay();
+        }
+    }
+    
+    private static boolean isSuccessful(int code) {
+        return code >= 200 && code < 300;
+    }
+    
+    // Retrying is only safe where Spotify cannot have applied the first attempt, or the request is idempotent.
+    // A 502 or 504 from the gateway says nothing about whether a skip (POST) went through, so retrying one could skip
+    // twice; only a request that never reached Spotify, or a 503 refusal, is sent again.
+    private static boolean isRetryable(String method, int code) {
+        if (code == NOT_CONNECTED) {
+            return true;
+        }
+        if ("PUT".equals(method)) {
+            return code == -1 || code >= 500;
+        }
+        if ("POST".equals(method)) {
+            return code == 503;
+        }
+        return code == 502 || code == 503 || code == 504;
+    }
+    
+    private static boolean isNotConnected(IOException e) {
+        return e instanceof UnknownHostException || e instanceof ConnectException || e instanceof NoRouteToHostException
+                || e instanceof CircuitBreaker.OpenException;
+    }
+    
+    // Returns the HTTP status code, NOT_CONNECTED if Spotify could not be reached or its breaker is open, or -1 if the request failed
+    // otherwise or could not be sent within the command's budget.
+    private int makeSpotifyRequest(String method, String endpoint, RequestBody body, CommandContext context) {
+        int code = -1;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                if (context.remainingMillis() < MIN_RETRY_BUDGET_MS) {
+                    logger.warning("No latency budget left to retry {}", endpoint);
+                    break;
+                }
+                logger.info("Retrying {} after {}", endpoint, code == -1 ? "I/O error" : "status " + code);
+            }
+            code = sendSpotifyRequest(method, endpoint, body, context);
+            if (!isRetryable(method, code)) {
+                break;
+            }
+        }
+        return code;
+    }
+    
+    // A 401 means Spotify no longer accepts the token even though it looked fresh here (revoked, or expired while
+    // the clocks disagreed). The token is refreshed, joining any refresh already running, and the request sent once
+    // more.
+    private int sendSpotifyRequest(String method, String endpoint, RequestBody body, CommandContext context) {
+        String accessToken = configManager.getSpotifyAccessToken();
+        int code = sendSpotifyRequest(method, endpoint, body, accessToken, context);
+        if (code != UNAUTHORIZED) {
+            return code;
+        }
+        tokenRefreshScheduler.invalidate(accessToken);
+        if (context.remainingMillis() < MIN_RETRY_BUDGET_MS || !ensureValidToken(context)) {
+            return code;
+        }
+        logger.info("Access token rejected, retrying {} with a refreshed one", endpoint);
+        return sendSpotifyRequest(method, endpoint, body, configManager.getSpotifyAccessToken(), context);
+    }
+    
+    private int sendSpotifyRequest(String method, String endpoint, RequestBody body, String accessToken,
+            CommandContext context) {
+        if (!rateLimiter.acquire(1, Math.min(MAX_RATE_LIMIT_WAIT_MS, context.remainingMillis()))) {
+            logger.warning("Dropping {}: {}", endpoint, rateLimiter.getStatus());
+            return TOO_MANY_REQUESTS;
+        }
+        
+        long timeoutMs = context.remainingMillis();
+        if (timeoutMs <= 0) {
+            logger.warning("Dropping {}: latency budget exceeded", endpoint);
+            return -1;
+        }
+        
         try {
-            String accessToken = configManager.getSpotifyAccessToken();
-            
             Request.Builder requestBuilder = new Request.Builder()
-                    .url(SPOTIFY_API_BASE + endpoint)
+                    .url(apiBase + endpoint)
                     .header("Authorization", "Bearer " + accessToken);
             
             switch (method) {
@@ -247,17 +868,106 @@ public class SpotifyController {
                     requestBuilder.put(body != null ? body : RequestBody.create("", null));
                     break;
                 default:
-                    logger.warning("Unsupported HTTP method: " + method);
-                    return;
+                    logger.warning("Unsupported HTTP method: {}", method);
+                    return -1;
             }
             
-            try (Response response = httpClient.newCall(requestBuilder.build()).execute()) {
+            long start = System.nanoTime();
+            try (Response response = executeApiRequest(requestBuilder.build(), timeoutMs)) {
                 if (!response.isSuccessful()) {
-                    logger.warning("Spotify API request failed: " + response.code() + " for " + endpoint);
+                    logger.warning("Spotify API request failed: {} for {}", response.code(), endpoint);
                 }
+                return response.code();
+            } finally {
+                context.addHttpNanos(System.nanoTime() - start);
             }
+        } catch (IOException e) {
+            logger.warning("Error making Spotify API request: {}", e.getMessage());
+            return isNotConnected(e) ? NOT_CONNECTED : -1;
         } catch (Exception e) {
-            logger.warning("Error making Spotify API request: " + e.getMessage());
+            logger.warning("Error making Spotify API request: {}", e.getMessage());
+            return -1;
+        }
+    }
+    
+    // Each request that fails without reaching Spotify is journaled as one skip in the given direction, as is each
+    // one the breaker holds back. Every request needs its own breaker permit, so a half-open breaker lets only its
+    // single trial through. Returns how many requests succeeded before the command's budget ran out.
+    private int makePipelinedRequests(String method, String endpoint, int count, int direction, CommandContext context) {
+        if (!rateLimiter.acquire(count, Math.min(MAX_RATE_LIMIT_WAIT_MS, context.remainingMillis()))) {
+            logger.warning("Dropping {} x {}: {}", count, endpoint, rateLimiter.getStatus());
+            return 0;
+        }
+        
+        int permitted = 0;
+        while (permitted < count && apiBreaker.tryAcquire()) {
+            permitted++;
+        }
+        if (permitted < count) {
+            logger.warning("Not sending {} x {}: circuit open for {}", count - permitted, endpoint, apiBreaker.getHost());
+            if (!context.isExpired()) {
+                journal.record(SpotifyCommand.Kind.SKIP, (count - permitted) * direction);
+            }
+            if (permitted == 0) {
+                return 0;
+            }
+        }
+        
+        long timeoutMs = context.remainingMillis();
+        String accessToken = configManager.getSpotifyAccessToken();
+        CountDownLatch completed = new CountDownLatch(permitted);
+        AtomicInteger succeeded = new AtomicInteger();
+        long start = System.nanoTime();
+        
+        Callback callback = new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    apiBreaker.onResult(response.code() < 500, System.nanoTime() - start);
+                    recordRateLimit(response);
+                    if (response.isSuccessful()) {
+                        succeeded.incrementAndGet();
+                    } else {
+                        logger.warning("Spotify API request failed: {} for {}", response.code(), endpoint);
+                        if (response.code() == UNAUTHORIZED) {
+                            tokenRefreshScheduler.invalidate(accessToken);
+                        }
+                        if (shouldJournal(method, response.code(), context)) {
+                            journal.record(SpotifyCommand.Kind.SKIP, direction);
+                        }
+                    }
+                } finally {
+                    completed.countDown();
+                }
+            }
+            
+            @Override
+            public void onFailure(Call call, IOException e) {
+                apiBreaker.onFailure(e, System.nanoTime() - start);
+                logger.warning("Error making Spotify API request: {}", e.getMessage());
+                if (isNotConnected(e) && !context.isExpired()) {
+                    journal.record(SpotifyCommand.Kind.SKIP, direction);
+                }
+                completed.countDown();
+            }
+        };
+        
+        for (int i = 0; i < permitted; i++) {
+            Request request = new Request.Builder()
+                    .url(apiBase + endpoint)
+                    .header("Authorization", "Bearer " + accessToken)
+                    .method(method, RequestBody.create("", null))
+                    .build();
+            newCall(request, timeoutMs).enqueue(callback);
+        }
+        
+        try {
+            completed.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            context.addHttpNanos(System.nanoTime() - start);
         }
+        return succeeded.get();
     }
 }
\ No newline at end of file
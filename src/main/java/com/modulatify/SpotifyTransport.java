@@ -0,0 +1,103 @@
+package com.modulatify;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// The Spotify base URLs and the shared HTTP client that carries every request, including token refresh, artwork
+// and connection warming. Only the base URLs vary: the benchmarks and harness use them to reach the bundled fake
+// Spotify, while timeouts, pooling and DNS are always configured here.
+public class SpotifyTransport {
+    public static final String SPOTIFY_API_BASE = "https://api.spotify.com/v1";
+    public static final String SPOTIFY_ACCOUNTS_BASE = "https://accounts.spotify.com";
+    
+    private final String apiBase;
+    private final String accountsBase;
+    private final CachingDns dns;
+    private final OkHttpClient httpClient;
+    
+    public SpotifyTransport(String apiBase, String accountsBase) {
+        this(apiBase, accountsBase, new OkHttpClient.Builder());
+    }
+    
+    // The builder may carry extra interceptors or an event listener; timeouts, pooling and DNS are set here.
+    public SpotifyTransport(String apiBase, String accountsBase, OkHttpClient.Builder clientBuilder) {
+        this.apiBase = stripTrailingSlash(apiBase);
+        this.accountsBase = stripTrailingSlash(accountsBase);
+        this.dns = new CachingDns();
+        this.httpClient = clientBuilder
+                .connectTimeout(0, TimeUnit.MILLISECONDS)
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .writeTimeout(0, TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(4, 10, TimeUnit.MINUTES))
+                .pingInterval(30, TimeUnit.SECONDS)
+                .dns(dns)
+                .addInterceptor(SpotifyTransport::recordExchange)
+                .build();
+    }
+    
+    // The real Spotify endpoints unless spotify.api_base / spotify.accounts_base override them in the config.
+    public static SpotifyTransport fromConfig(ConfigManager configManager) {
+        return new SpotifyTransport(
+                configManager.getSpotifyApiBase(SPOTIFY_API_BASE),
+                configManager.getSpotifyAccountsBase(SPOTIFY_ACCOUNTS_BASE));
+    }
+    
+    public String getApiBase() {
+        return apiBase;
+    }
+    
+    public String getAccountsBase() {
+        return accountsBase;
+    }
+    
+    public CachingDns getDns() {
+        return dns;
+    }
+    
+    public OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+    
+    // Every call carries its own timeout; the shared client has no global connect or read timeout.
+    public Call newCall(Request request, long timeoutMs) {
+        Call call = httpClient.newCall(request);
+        call.timeout().timeout(Math.max(1, timeoutMs), TimeUnit.MILLISECONDS);
+        return call;
+    }
+    
+    // Records each exchange, including retries and pipelined calls, as a flight recorder event when one is enabled.
+    private static Response recordExchange(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        FlightEvents.SpotifyRequest event = new FlightEvents.SpotifyRequest();
+        if (!event.isEnabled()) {
+            return chain.proceed(request);
+        }
+        
+        event.method = request.method();
+        event.host = request.url().host();
+        event.endpoint = request.url().encodedPath();
+        event.status = -1;
+        event.begin();
+        try {
+            Response response = chain.proceed(request);
+            event.status = response.code();
+            event.protocol = response.protocol().toString();
+            return response;
+        } catch (IOException | RuntimeException e) {
+            event.error = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            event.commit();
+        }
+    }
+    
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -9,14 +9,22 @@ import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.logging.Logger;
 
 public class SystemTrayManager {
-    private static final Logger logger = Logger.getLogger(SystemTrayManager.class.getName());
+    private static final Log logger = Log.get(SystemTrayManager.class);
     
     private final ModulatifyApp app;
     private SystemTray systemTray;
     private TrayIcon trayIcon;
+    private MenuItem recordingItem;
+    private Image normalIcon;
+    private Image disconnectedIcon;
+    // Only touched on the EDT.
+    private String rateLimitStatus;
+    private String connectionStatus;
+    private String nowPlaying;
+    private String nowPlayingId;
+    private Image artworkIcon;
     
     public SystemTrayManager(ModulatifyApp app) {
         this.app = app;
@@ -25,6 +33,7 @@ public class SystemTrayManager {
     
     public void createTrayIcon() throws Exception {
         Image iconImage = loadTrayIcon();
+        normalIcon = iconImage;
         
         PopupMenu popup = new PopupMenu();
         
@@ -32,6 +41,10 @@ public class SystemTrayManager {
         settingsItem.addActionListener(e -> app.showSettings());
         popup.add(settingsItem);
         
+        recordingItem = new MenuItem("Start Flight Recording");
+        recordingItem.addActionListener(e -> app.toggleFlightRecording());
+        popup.add(recordingItem);
+        
         popup.addSeparator();
         
         MenuItem exitItem = new MenuItem("Exit");
@@ -63,7 +76,7 @@ public class SystemTrayManager {
             }
             return Toolkit.getDefaultToolkit().createImage(iconStream.readAllBytes());
         } catch (IOException e) {
-            logger.warning("Failed to load icon, using default: " + e.getMessage());
+            logger.warning("Failed to load icon, using default: {}", e.getMessage());
             return createDefaultIcon();
         }
     }
@@ -90,6 +103,103 @@ public class SystemTrayManager {
         return image;
     }
     
+    // Shows a transient status (e.g. rate limiting) in the tooltip; null restores the default tooltip.
+    public void setStatus(String status) {
+        EventQueue.invokeLater(() -> {
+            rateLimitStatus = status;
+            updateToolTip();
+        });
+    }
+    
+    // Reports an unreachable Spotify host in the tooltip and with a marked icon; null means connected.
+    public void setConnectionStatus(String status) {
+        EventQueue.invokeLater(() -> {
+            connectionStatus = status;
+            updateIcon();
+            updateToolTip();
+        });
+    }
+    
+    // Shows the playing track in the tooltip and, if notify is set (e.g. after a skip), as a notification.
+    // The previous cover stays up until setArtwork delivers the new one.
+    public void showNowPlaying(Track track, boolean notify) {
+        EventQueue.invokeLater(() -> {
+            nowPlaying = track.describe();
+            nowPlayingId = track.getId();
+            updateToolTip();
+            if (notify && trayIcon != null) {
+                trayIcon.displayMessage("Now playing", nowPlaying, TrayIcon.MessageType.NONE);
+            }
+        });
+    }
+    
+    // Shows the cover art of the given track as the icon, if it is still the one playing; null restores the logo.
+    public void setArtwork(Track track, Image artwork) {
+        EventQueue.invokeLater(() -> {
+            if (track.getId().equals(nowPlayingId)) {
+                artworkIcon = artwork;
+                updateIcon();
+            }
+        });
+    }
+    
+    public int getIconSize() {
+        return systemTray.getTrayIconSize().width;
+    }
+    
+    // A disconnected state takes precedence over the cover art.
+    private void updateIcon() {
+        if (trayIcon == null) {
+            return;
+        }
+        Image image = connectionStatus != null ? getDisconnectedIcon() : artworkIcon != null ? artworkIcon : normalIcon;
+        if (trayIcon.getImage() != image) {
+            trayIcon.setImage(image);
+        }
+    }
+    
+    private void updateToolTip() {
+        if (trayIcon == null) {
+            return;
+        }
+        StringBuilder toolTip = new StringBuilder("Modulatify");
+        if (connectionStatus != null) {
+            toolTip.append(" - ").append(connectionStatus);
+        }
+        if (rateLimitStatus != null) {
+            toolTip.append(" - ").append(rateLimitStatus);
+        }
+        if (nowPlaying != null) {
+            toolTip.append('\n').append(nowPlaying);
+        }
+        trayIcon.setToolTip(toolTip.toString());
+    }
+    
+    // The normal icon, greyed out with a red dot in the corner.
+    private Image getDisconnectedIcon() {
+        if (disconnectedIcon == null) {
+            Image base = new ImageIcon(normalIcon).getImage();
+            Dimension size = systemTray.getTrayIconSize();
+            BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = image.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+            g2d.drawImage(base, 0, 0, size.width, size.height, null);
+            g2d.setComposite(AlphaComposite.SrcOver);
+            int dot = Math.max(5, size.width / 3);
+            g2d.setColor(new Color(220, 50, 50));
+            g2d.fillOval(size.width - dot, size.height - dot, dot, dot);
+            g2d.dispose();
+            disconnectedIcon = image;
+        }
+        return disconnectedIcon;
+    }
+    
+    public void setRecording(boolean recording) {
+        EventQueue.invokeLater(() -> recordingItem.setLabel(
+                recording ? "Stop Flight Recording" : "Start Flight Recording"));
+    }
+    
     public void showMessage(String caption, String text, TrayIcon.MessageType messageType) {
         if (trayIcon != null) {
             trayIcon.displayMessage(caption, text, messageType);
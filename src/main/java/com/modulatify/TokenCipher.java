@@ -0,0 +1,67 @@
+package com.modulatify;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+public class TokenCipher {
+    private static final String GCM_PREFIX = "v2:";
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String LEGACY_TRANSFORMATION = "AES";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    
+    private final SecretKey key;
+    private final SecureRandom random = new SecureRandom();
+    
+    // Cipher.getInstance is the expensive part; each thread keeps its own instance and only re-initialises it with a fresh IV.
+    private final ThreadLocal<Cipher> gcmCipher = ThreadLocal.withInitial(() -> newCipher(GCM_TRANSFORMATION));
+    private final ThreadLocal<Cipher> legacyCipher = ThreadLocal.withInitial(() -> newCipher(LEGACY_TRANSFORMATION));
+    
+    public TokenCipher(SecretKey key) {
+        this.key = key;
+    }
+    
+    public String encrypt(String plaintext) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        
+        Cipher cipher = gcmCipher.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        byte[] encrypted = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+        
+        byte[] payload = ByteBuffer.allocate(IV_LENGTH + encrypted.length).put(iv).put(encrypted).array();
+        return GCM_PREFIX + Base64.getEncoder().encodeToString(payload);
+    }
+    
+    public String decrypt(String stored) throws GeneralSecurityException {
+        if (isLegacy(stored)) {
+            Cipher cipher = legacyCipher.get();
+            cipher.init(Cipher.DECRYPT_MODE, key);
+            return new String(cipher.doFinal(Base64.getDecoder().decode(stored)), StandardCharsets.UTF_8);
+        }
+        
+        byte[] payload = Base64.getDecoder().decode(stored.substring(GCM_PREFIX.length()));
+        Cipher cipher = gcmCipher.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, payload, 0, IV_LENGTH));
+        return new String(cipher.doFinal(payload, IV_LENGTH, payload.length - IV_LENGTH), StandardCharsets.UTF_8);
+    }
+    
+    // Values written before the switch to AES-GCM carry no prefix and are re-encrypted on the next save.
+    public static boolean isLegacy(String stored) {
+        return !stored.startsWith(GCM_PREFIX);
+    }
+    
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cipher " + transformation + " unavailable", e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.modulatify;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+public class TokenRefreshScheduler {
+    private static final Log logger = Log.get(TokenRefreshScheduler.class);
+    
+    private static final long REFRESH_MARGIN_MS = 5 * 60_000L;
+    private static final long EXPIRY_SKEW_MS = 10_000L;
+    private static final long INITIAL_RETRY_DELAY_MS = 30_000L;
+    private static final long MAX_RETRY_DELAY_MS = 5 * 60_000L;
+    
+    private final ConfigManager configManager;
+    private final BooleanSupplier refreshAction;
+    private final long initialRetryDelayMs;
+    private final long maxRetryDelayMs;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final AtomicReference<CompletableFuture<Boolean>> inFlight = new AtomicReference<>();
+    
+    // Expiry on the monotonic clock, so setting the wall clock back cannot make a token look valid. On Linux that
+    // clock stops while the machine is suspended, so isTokenFresh checks the wall-clock expiry as well.
+    private volatile long expiresAtNanos;
+    private ScheduledFuture<?> scheduledRefresh;
+    private long retryDelayMs;
+    
+    public TokenRefreshScheduler(ConfigManager configManager, BooleanSupplier refreshAction) {
+        this(configManager, refreshAction, INITIAL_RETRY_DELAY_MS, MAX_RETRY_DELAY_MS);
+    }
+    
+    // Shorter retry delays let tests observe the backoff.
+    TokenRefreshScheduler(ConfigManager configManager, BooleanSupplier refreshAction, long initialRetryDelayMs,
+            long maxRetryDelayMs) {
+        this.configManager = configManager;
+        this.refreshAction = refreshAction;
+        this.initialRetryDelayMs = initialRetryDelayMs;
+        this.maxRetryDelayMs = maxRetryDelayMs;
+        this.retryDelayMs = initialRetryDelayMs;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("modulatify-token"));
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.expiresAtNanos = System.nanoTime();
+    }
+    
+    public void start() {
+        onTokenUpdated();
+    }
+    
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+    
+    // Re-reads the expiry from the configuration and schedules the next refresh ahead of it.
+    public synchronized void onTokenUpdated() {
+        long remainingMs = configManager.getTokenExpiresAt() - System.currentTimeMillis();
+        expiresAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(remainingMs);
+        retryDelayMs = initialRetryDelayMs;
+        scheduleRefresh(Math.max(0, remainingMs - REFRESH_MARGIN_MS));
+    }
+    
+    public boolean isTokenFresh() {
+        String accessToken = configManager.getSpotifyAccessToken();
+        if (accessToken == null || accessToken.isEmpty()) {
+            return false;
+        }
+        return System.nanoTime() - (expiresAtNanos - TimeUnit.MILLISECONDS.toNanos(EXPIRY_SKEW_MS)) < 0
+                && System.currentTimeMillis() < configManager.getTokenExpiresAt() - EXPIRY_SKEW_MS;
+    }
+    
+    // Called when Spotify answered 401 to a request sent with the given token. The token is treated as expired
+    // unless a refresh has already replaced it, so concurrent 401s lead to a single refresh.
+    public synchronized void invalidate(String rejectedToken) {
+        if (rejectedToken != null && rejectedToken.equals(configManager.getSpotifyAccessToken())) {
+            expiresAtNanos = System.nanoTime();
+        }
+    }
+    
+    // Returns immediately in the common case; otherwise joins the single in-flight refresh.
+    public boolean awaitValidToken(long timeoutMs) {
+        if (isTokenFresh()) {
+            return true;
+        }
+        try {
+            return refresh().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            logger.warning("Timed out waiting for token refresh: {}", e.getMessage());
+            return false;
+        }
+    }
+    
+    // All callers share one refresh future until it completes.
+    public CompletableFuture<Boolean> refresh() {
+        while (true) {
+            CompletableFuture<Boolean> current = inFlight.get();
+            if (current != null) {
+                return current;
+            }
+            
+            CompletableFuture<Boolean> created = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, created)) {
+                try {
+                    scheduler.execute(() -> runRefresh(created));
+                } catch (RejectedExecutionException e) {
+                    inFlight.set(null);
+                    created.complete(false);
+                }
+                return created;
+            }
+        }
+    }
+    
+    private void runRefresh(CompletableFuture<Boolean> future) {
+        boolean success = false;
+        try {
+            success = refreshAction.getAsBoolean();
+        } catch (Exception e) {
+            logger.warning("Token refresh failed: {}", e.getMessage());
+        } finally {
+            if (success) {
+                onTokenUpdated();
+            } else {
+                scheduleRetry();
+            }
+            inFlight.set(null);
+            future.complete(success);
+        }
+    }
+    
+    private synchronized void scheduleRetry() {
+        String refreshToken = configManager.getSpotifyRefreshToken();
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            return;
+        }
+        scheduleRefresh(retryDelayMs);
+        retryDelayMs = Math.min(maxRetryDelayMs, retryDelayMs * 2);
+    }
+    
+    private synchronized void scheduleRefresh(long delayMs) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+            scheduledRefresh = null;
+        }
+        
+        String refreshToken = configManager.getSpotifyRefreshToken();
+        if (refreshToken == null || refreshToken.isEmpty() || scheduler.isShutdown()) {
+            return;
+        }
+        
+        scheduledRefresh = scheduler.schedule(this::refresh, delayMs, TimeUnit.MILLISECONDS);
+        logger.fine("Next token refresh in {}s", delayMs / 1000);
+    }
+}
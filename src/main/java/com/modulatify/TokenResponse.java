@@ -0,0 +1,63 @@
+package com.modulatify;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+
+// The fields of a /api/token response we keep. Parsed straight off the response stream.
+public final class TokenResponse {
+    private final String accessToken;
+    private final String refreshToken;
+    private final int expiresIn;
+    
+    private TokenResponse(String accessToken, String refreshToken, int expiresIn) {
+        this.accessToken = accessToken;
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
+    }
+    
+    public static TokenResponse parse(JsonFactory jsonFactory, InputStream body) throws IOException {
+        String accessToken = null;
+        String refreshToken = null;
+        int expiresIn = -1;
+        
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object in token response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("access_token".equals(field) && value == JsonToken.VALUE_STRING) {
+                    accessToken = parser.getText();
+                } else if ("refresh_token".equals(field) && value == JsonToken.VALUE_STRING) {
+                    refreshToken = parser.getText();
+                } else if ("expires_in".equals(field) && value.isNumeric()) {
+                    expiresIn = parser.getIntValue();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        
+        if (accessToken == null || expiresIn < 0) {
+            throw new IOException("Token response is missing access_token or expires_in");
+        }
+        return new TokenResponse(accessToken, refreshToken, expiresIn);
+    }
+    
+    public String getAccessToken() {
+        return accessToken;
+    }
+    
+    // Only present on the authorization-code exchange; refreshes usually omit it.
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+    
+    public int getExpiresIn() {
+        return expiresIn;
+    }
+}
@@ -0,0 +1,51 @@
+package com.modulatify;
+
+// A track or episode as shown to the user: the item playing now or an entry of the queue.
+public final class Track {
+    private final String id;
+    private final String name;
+    private final String artists;
+    private final long durationMs;
+    private final String artworkUrl;
+    
+    public Track(String id, String name, String artists, long durationMs, String artworkUrl) {
+        this.id = id;
+        this.name = name;
+        this.artists = artists;
+        this.durationMs = durationMs;
+        this.artworkUrl = artworkUrl;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    // Comma-separated artist names; empty for items without artists, such as podcast episodes.
+    public String getArtists() {
+        return artists;
+    }
+    
+    public long getDurationMs() {
+        return durationMs;
+    }
+    
+    // The smallest cover image that still fills ArtworkCache.DISK_SIZE; null if the item has none.
+    public String getArtworkUrl() {
+        return artworkUrl;
+    }
+    
+    // "Name - Artists", or just the name when there are no artists.
+    public String describe() {
+        String title = name == null || name.isEmpty() ? "Unknown track" : name;
+        return artists == null || artists.isEmpty() ? title : title + " - " + artists;
+    }
+    
+    @Override
+    public String toString() {
+        return id + " (" + describe() + ")";
+    }
+}
@@ -0,0 +1,204 @@
+package com.modulatify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(150);
+    private static final long OPEN_MILLIS = 50;
+    
+    // Opens once 3 of the last 4 calls failed, or took longer than 100 ms.
+    private static CircuitBreaker breaker() {
+        return new CircuitBreaker("api.example.test", 4, 4, 0.75, 100, OPEN_MILLIS);
+    }
+    
+    private static void fail(CircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.onResult(false, FAST);
+        }
+    }
+    
+    private static void succeed(CircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.onResult(true, FAST);
+        }
+    }
+    
+    private static CircuitBreaker openBreaker() {
+        CircuitBreaker breaker = breaker();
+        fail(breaker, 4);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+    
+    private static void awaitOpenPeriod() throws InterruptedException {
+        Thread.sleep(OPEN_MILLIS + 20);
+    }
+    
+    @Test
+    void staysClosedUntilTheMinimumNumberOfCalls() {
+        CircuitBreaker breaker = breaker();
+        
+        fail(breaker, 3);
+        
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+    
+    @Test
+    void opensAtTheFailureRatioAndRejectsCalls() {
+        CircuitBreaker breaker = breaker();
+        
+        succeed(breaker, 1);
+        fail(breaker, 3);
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+    
+    @Test
+    void forgetsFailuresThatLeftTheWindow() {
+        CircuitBreaker breaker = breaker();
+        
+        fail(breaker, 2);
+        succeed(breaker, 2);
+        fail(breaker, 2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        
+        fail(breaker, 1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+    
+    @Test
+    void countsSlowSuccessesAsFailures() {
+        CircuitBreaker breaker = breaker();
+        
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(true, SLOW);
+        }
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+    
+    @Test
+    void letsASingleTrialThroughOnceTheOpenPeriodEnds() throws InterruptedException {
+        CircuitBreaker breaker = openBreaker();
+        
+        awaitOpenPeriod();
+        
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+    }
+    
+    @Test
+    void closesWithAFreshWindowWhenTheTrialSucceeds() throws InterruptedException {
+        CircuitBreaker breaker = openBreaker();
+        awaitOpenPeriod();
+        assertTrue(breaker.tryAcquire());
+        
+        breaker.onResult(true, FAST);
+        
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        fail(breaker, 3);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+    
+    @Test
+    void reopensWhenTheTrialFails() throws InterruptedException {
+        CircuitBreaker breaker = openBreaker();
+        awaitOpenPeriod();
+        assertTrue(breaker.tryAcquire());
+        
+        breaker.onResult(false, FAST);
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        awaitOpenPeriod();
+        assertTrue(breaker.tryAcquire());
+    }
+    
+    @Test
+    void releaseHandsTheTrialPermitToTheNextCall() throws InterruptedException {
+        CircuitBreaker breaker = openBreaker();
+        awaitOpenPeriod();
+        assertTrue(breaker.tryAcquire());
+        
+        breaker.release();
+        
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+    }
+    
+    @Test
+    void doesNotHoldBudgetTimeoutsAgainstTheHost() {
+        CircuitBreaker breaker = breaker();
+        
+        for (int i = 0; i < 8; i++) {
+            breaker.onFailure(new SocketTimeoutException("timeout"), FAST);
+        }
+        
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+    
+    @Test
+    void countsTimeoutsThatOutlastTheSlowCallThreshold() {
+        CircuitBreaker breaker = breaker();
+        
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(new SocketTimeoutException("timeout"), SLOW);
+        }
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+    
+    @Test
+    void countsConnectionFailures() {
+        CircuitBreaker breaker = breaker();
+        
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(new ConnectException("refused"), FAST);
+        }
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+    
+    @Test
+    void aBudgetTimeoutDuringTheTrialFreesThePermit() throws InterruptedException {
+        CircuitBreaker breaker = openBreaker();
+        awaitOpenPeriod();
+        assertTrue(breaker.tryAcquire());
+        
+        breaker.onFailure(new SocketTimeoutException("timeout"), FAST);
+        
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+    
+    @Test
+    void notifiesEachStateChange() throws InterruptedException {
+        CircuitBreaker breaker = breaker();
+        List<CircuitBreaker.State> states = new ArrayList<>();
+        breaker.setStateListener(states::add);
+        
+        fail(breaker, 4);
+        awaitOpenPeriod();
+        breaker.tryAcquire();
+        breaker.onResult(true, FAST);
+        
+        assertEquals(Arrays.asList(CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN,
+                CircuitBreaker.State.CLOSED), states);
+    }
+}
@@ -0,0 +1,243 @@
+package com.modulatify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Drives the dispatcher against a real SpotifyController talking to a local stub of the Web API. The stub records
+// each player command (every request that is not a read or a token refresh) and can hold them to keep a run in flight.
+class CommandDispatcherTest {
+    private static final String PLAYER_JSON = "{\"device\":{\"id\":\"device-1\",\"is_active\":true,"
+            + "\"is_restricted\":false,\"name\":\"Speaker\",\"type\":\"Speaker\",\"volume_percent\":50},"
+            + "\"progress_ms\":0,\"is_playing\":false,"
+            + "\"item\":{\"id\":\"track-1\",\"name\":\"Track 1\",\"duration_ms\":200000,\"type\":\"track\"}}";
+    
+    @TempDir
+    Path directory;
+    
+    private final List<Command> commands = new CopyOnWriteArrayList<>();
+    private volatile CountDownLatch gate;
+    private HttpServer spotify;
+    private ExecutorService spotifyExecutor;
+    private SpotifyController spotifyController;
+    private CommandDispatcher dispatcher;
+    
+    private static final class Command {
+        private final String request;
+        private final long receivedNanos;
+        
+        private Command(String request, long receivedNanos) {
+            this.request = request;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+    
+    @AfterEach
+    void shutdown() {
+        CountDownLatch held = gate;
+        if (held != null) {
+            held.countDown();
+        }
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+            spotifyController.shutdown();
+        }
+        if (spotify != null) {
+            spotify.stop(0);
+            spotifyExecutor.shutdownNow();
+        }
+    }
+    
+    private void start(long coalesceWindowMs) throws IOException {
+        spotify = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        spotify.createContext("/", this::handle);
+        spotifyExecutor = Executors.newCachedThreadPool();
+        spotify.setExecutor(spotifyExecutor);
+        spotify.start();
+        String base = "http://127.0.0.1:" + spotify.getAddress().getPort();
+        
+        Files.write(directory.resolve("config.properties"), List.of(
+                "dispatch.coalesce_window_ms=" + coalesceWindowMs,
+                "network.rate_limit_per_second=50",
+                "network.rate_limit_burst=10"), StandardCharsets.UTF_8);
+        ConfigManager configManager = new ConfigManager(directory);
+        configManager.loadConfig();
+        configManager.setSpotifyAccessToken("access");
+        configManager.setSpotifyRefreshToken("refresh");
+        
+        spotifyController = new SpotifyController(configManager, base + "/v1", base);
+        dispatcher = new CommandDispatcher(spotifyController, configManager, new LatencyMetrics());
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            exchange.getRequestBody().readAllBytes();
+            if (path.equals("/api/token")) {
+                respond(exchange, 200, "{\"access_token\":\"access\",\"token_type\":\"Bearer\",\"expires_in\":3600}");
+            } else if (method.equals("GET") && path.equals("/v1/me/player")) {
+                respond(exchange, 200, PLAYER_JSON);
+            } else {
+                commands.add(new Command(method + " " + exchange.getRequestURI(), System.nanoTime()));
+                CountDownLatch held = gate;
+                if (held != null) {
+                    held.await(5, TimeUnit.SECONDS);
+                }
+                exchange.sendResponseHeaders(204, -1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    private void submit(SpotifyCommand command, int times) {
+        for (int i = 0; i < times; i++) {
+            dispatcher.submit(command);
+        }
+    }
+    
+    private Command awaitCommand(int index) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        while (commands.size() <= index) {
+            assertTrue(System.nanoTime() - deadline < 0, "no command #" + (index + 1) + " in " + requests());
+            Thread.sleep(5);
+        }
+        return commands.get(index);
+    }
+    
+    private String requests() {
+        StringBuilder requests = new StringBuilder("[");
+        for (Command command : commands) {
+            requests.append(requests.length() > 1 ? ", " : "").append(command.request);
+        }
+        return requests.append(']').toString();
+    }
+    
+    private static long millisBetween(long fromNanos, long toNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(toNanos - fromNanos);
+    }
+    
+    @Test
+    void dispatchesTheFirstPressOnAnIdleLaneAtOnce() throws Exception {
+        start(1_000);
+        long pressed = System.nanoTime();
+        
+        dispatcher.submit(SpotifyCommand.SKIP_FORWARD);
+        
+        Command skip = awaitCommand(0);
+        assertTrue(skip.request.startsWith("POST /v1/me/player/next"), skip.request);
+        long delayMs = millisBetween(pressed, skip.receivedNanos);
+        assertTrue(delayMs < 500, "sent after " + delayMs + "ms");
+    }
+    
+    @Test
+    void foldsPressesThatArriveWhileARunIsInFlight() throws Exception {
+        start(50);
+        gate = new CountDownLatch(1);
+        dispatcher.submit(SpotifyCommand.VOLUME_UP);
+        awaitCommand(0);
+        
+        submit(SpotifyCommand.VOLUME_UP, 3);
+        dispatcher.submit(SpotifyCommand.VOLUME_DOWN);
+        gate.countDown();
+        
+        Command folded = awaitCommand(1);
+        Thread.sleep(200);
+        assertTrue(commands.get(0).request.contains("volume_percent=60"), requests());
+        assertTrue(folded.request.contains("volume_percent=80"), requests());
+        assertEquals(2, commands.size(), requests());
+    }
+    
+    @Test
+    void foldsPressesWithinTheWindowAfterADispatch() throws Exception {
+        start(300);
+        long pressed = System.nanoTime();
+        dispatcher.submit(SpotifyCommand.VOLUME_UP);
+        awaitCommand(0);
+        
+        submit(SpotifyCommand.VOLUME_UP, 2);
+        
+        Command folded = awaitCommand(1);
+        Thread.sleep(100);
+        assertTrue(folded.request.contains("volume_percent=80"), requests());
+        long heldMs = millisBetween(pressed, folded.receivedNanos);
+        assertTrue(heldMs >= 300, "sent after " + heldMs + "ms");
+        assertEquals(2, commands.size(), requests());
+    }
+    
+    @Test
+    void dropsAnEvenNumberOfFoldedToggles() throws Exception {
+        start(50);
+        gate = new CountDownLatch(1);
+        dispatcher.submit(SpotifyCommand.SKIP_FORWARD);
+        awaitCommand(0);
+        
+        submit(SpotifyCommand.PLAY_PAUSE, 2);
+        gate.countDown();
+        Thread.sleep(300);
+        
+        assertEquals(1, commands.size(), requests());
+    }
+    
+    @Test
+    void sendsAnOddNumberOfFoldedTogglesAsOne() throws Exception {
+        start(50);
+        gate = new CountDownLatch(1);
+        dispatcher.submit(SpotifyCommand.SKIP_FORWARD);
+        awaitCommand(0);
+        
+        submit(SpotifyCommand.PLAY_PAUSE, 3);
+        gate.countDown();
+        
+        Command toggle = awaitCommand(1);
+        Thread.sleep(300);
+        assertTrue(toggle.request.startsWith("PUT /v1/me/player/play"), requests());
+        assertEquals(2, commands.size(), requests());
+    }
+    
+    @Test
+    void holdsTheLaneWhileRateLimitedSoPressesKeepFolding() throws Exception {
+        start(50);
+        spotifyController.getRateLimiter().onRateLimited("1");
+        long limited = System.nanoTime();
+        
+        submit(SpotifyCommand.VOLUME_UP, 3);
+        
+        Command folded = awaitCommand(0);
+        Thread.sleep(200);
+        long heldMs = millisBetween(limited, folded.receivedNanos);
+        assertTrue(heldMs >= 900, "sent after " + heldMs + "ms");
+        assertTrue(folded.request.contains("volume_percent=80"), requests());
+        assertEquals(1, commands.size(), requests());
+    }
+}
@@ -0,0 +1,216 @@
+package com.modulatify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CommandJournalTest {
+    @TempDir
+    Path directory;
+    
+    private Path journalFile() {
+        return directory.resolve("journal.log");
+    }
+    
+    private CommandJournal open() {
+        CommandJournal journal = new CommandJournal(journalFile());
+        journal.load();
+        return journal;
+    }
+    
+    private void writeJournal(String... lines) throws IOException {
+        Files.write(journalFile(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    void startsEmpty() {
+        CommandJournal journal = open();
+        
+        assertTrue(journal.isEmpty());
+        assertNull(journal.peek());
+        assertFalse(Files.exists(journalFile()));
+    }
+    
+    @Test
+    void keepsTheLatestVolumeAndPlayState() {
+        CommandJournal journal = open();
+        
+        journal.record(SpotifyCommand.Kind.VOLUME, 40);
+        journal.record(SpotifyCommand.Kind.VOLUME, 55);
+        journal.record(SpotifyCommand.Kind.TOGGLE, 1);
+        journal.record(SpotifyCommand.Kind.TOGGLE, 0);
+        
+        CommandJournal.Entry volume = journal.peek();
+        assertEquals(SpotifyCommand.Kind.VOLUME, volume.getKind());
+        assertEquals(55, volume.getValue());
+        journal.complete(volume);
+        assertEquals(0, journal.peek().getValue());
+    }
+    
+    @Test
+    void collapsesSkipsToTheirNetCount() {
+        CommandJournal journal = open();
+        
+        journal.record(SpotifyCommand.Kind.SKIP, 1);
+        journal.record(SpotifyCommand.Kind.SKIP, 1);
+        journal.record(SpotifyCommand.Kind.SKIP, -1);
+        journal.record(SpotifyCommand.Kind.SKIP, 1);
+        
+        assertEquals(2, journal.peek().getValue());
+    }
+    
+    @Test
+    void dropsSkipsThatCancelOut() {
+        CommandJournal journal = open();
+        
+        journal.record(SpotifyCommand.Kind.SKIP, 1);
+        journal.record(SpotifyCommand.Kind.SKIP, -1);
+        
+        assertTrue(journal.isEmpty());
+        assertNull(journal.peek());
+    }
+    
+    @Test
+    void replaysInOrderOfTheLatestRecording() {
+        CommandJournal journal = open();
+        
+        journal.record(SpotifyCommand.Kind.SKIP, 1);
+        journal.record(SpotifyCommand.Kind.VOLUME, 30);
+        journal.record(SpotifyCommand.Kind.SKIP, 1);
+        
+        CommandJournal.Entry first = journal.peek();
+        assertEquals(SpotifyCommand.Kind.VOLUME, first.getKind());
+        journal.complete(first);
+        assertEquals(SpotifyCommand.Kind.SKIP, journal.peek().getKind());
+    }
+    
+    @Test
+    void keepsANewerEntryRecordedDuringReplay() {
+        CommandJournal journal = open();
+        journal.record(SpotifyCommand.Kind.VOLUME, 30);
+        CommandJournal.Entry replaying = journal.peek();
+        
+        journal.record(SpotifyCommand.Kind.VOLUME, 70);
+        journal.complete(replaying);
+        
+        assertEquals(70, journal.peek().getValue());
+    }
+    
+    @Test
+    void supersedeDiscardsTheJournaledCommand() {
+        CommandJournal journal = open();
+        journal.record(SpotifyCommand.Kind.TOGGLE, 1);
+        
+        journal.supersede(SpotifyCommand.Kind.TOGGLE);
+        
+        assertTrue(journal.isEmpty());
+        assertFalse(Files.exists(journalFile()));
+    }
+    
+    @Test
+    void collapsesTheSameWayAfterARestart() {
+        CommandJournal before = open();
+        before.record(SpotifyCommand.Kind.SKIP, 1);
+        before.record(SpotifyCommand.Kind.VOLUME, 20);
+        before.record(SpotifyCommand.Kind.SKIP, 1);
+        before.record(SpotifyCommand.Kind.VOLUME, 35);
+        before.record(SpotifyCommand.Kind.SKIP, -1);
+        before.record(SpotifyCommand.Kind.SKIP, 1);
+        
+        CommandJournal after = open();
+        
+        CommandJournal.Entry volume = after.peek();
+        assertEquals(SpotifyCommand.Kind.VOLUME, volume.getKind());
+        assertEquals(35, volume.getValue());
+        after.complete(volume);
+        CommandJournal.Entry skip = after.peek();
+        assertEquals(SpotifyCommand.Kind.SKIP, skip.getKind());
+        assertEquals(2, skip.getValue());
+    }
+    
+    @Test
+    void boundsTheLogDuringALongOutage() throws IOException {
+        CommandJournal journal = open();
+        for (int i = 0; i < 200; i++) {
+            journal.record(SpotifyCommand.Kind.SKIP, 1);
+            journal.record(SpotifyCommand.Kind.VOLUME, i % 101);
+        }
+        
+        assertTrue(Files.readAllLines(journalFile()).size() <= 64);
+        CommandJournal restored = open();
+        assertEquals(SpotifyCommand.Kind.SKIP, restored.peek().getKind());
+        assertEquals(200, restored.peek().getValue());
+        assertEquals(2, Files.readAllLines(journalFile()).size());
+    }
+    
+    @Test
+    void dropsEntriesOlderThanTheirKindsLimitOnLoad() throws IOException {
+        long now = System.currentTimeMillis();
+        writeJournal(
+                (now - 31_000) + " SKIP 3",
+                (now - 60_000) + " TOGGLE 1",
+                (now - 60_000) + " VOLUME 80");
+        
+        CommandJournal journal = open();
+        
+        CommandJournal.Entry toggle = journal.peek();
+        assertEquals(SpotifyCommand.Kind.TOGGLE, toggle.getKind());
+        journal.complete(toggle);
+        assertEquals(SpotifyCommand.Kind.VOLUME, journal.peek().getKind());
+    }
+    
+    @Test
+    void dropsEntriesThatExpireWhilePending() throws IOException, InterruptedException {
+        long maxAge = SpotifyCommand.Kind.SKIP.getJournalMaxAgeMillis();
+        writeJournal((System.currentTimeMillis() - maxAge + 500) + " SKIP 1");
+        CommandJournal journal = open();
+        assertFalse(journal.isEmpty());
+        
+        Thread.sleep(700);
+        
+        assertNull(journal.peek());
+        assertTrue(journal.isEmpty());
+        assertFalse(Files.exists(journalFile()));
+    }
+    
+    @Test
+    void skipsCorruptLines() throws IOException {
+        long now = System.currentTimeMillis();
+        writeJournal(
+                now + " VOLUME 10",
+                "garbage",
+                now + " REWIND 2",
+                now + " VOLUME loud",
+                now + " VOLUME 25");
+        
+        CommandJournal journal = open();
+        
+        CommandJournal.Entry entry = journal.peek();
+        assertEquals(25, entry.getValue());
+        journal.complete(entry);
+        assertNull(journal.peek());
+    }
+    
+    @Test
+    void completingTheLastEntryDeletesTheFile() {
+        CommandJournal journal = open();
+        journal.record(SpotifyCommand.Kind.VOLUME, 10);
+        assertTrue(Files.exists(journalFile()));
+        
+        CommandJournal.Entry entry = journal.peek();
+        journal.complete(entry);
+        journal.complete(entry);
+        
+        assertNull(journal.peek());
+        assertFalse(Files.exists(journalFile()));
+    }
+}
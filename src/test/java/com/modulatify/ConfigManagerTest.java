@@ -0,0 +1,162 @@
+package com.modulatify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigManagerTest {
+    @TempDir
+    Path directory;
+    
+    private Path configFile() {
+        return directory.resolve("config.properties");
+    }
+    
+    private ConfigManager open() {
+        ConfigManager configManager = new ConfigManager(directory);
+        configManager.loadConfig();
+        return configManager;
+    }
+    
+    private Properties stored() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(configFile())) {
+            properties.load(in);
+        }
+        return properties;
+    }
+    
+    // Encrypts the way releases before the switch to AES-GCM did: plain "AES" (ECB), Base64 without a prefix.
+    private String legacyEncrypt(String plaintext) throws Exception {
+        byte[] key = Files.readAllBytes(directory.resolve("key.dat"));
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"));
+        return Base64.getEncoder().encodeToString(cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    private void writeLegacyConfig(String accessToken, String refreshToken) throws Exception {
+        // Creates key.dat.
+        new ConfigManager(directory);
+        Files.write(configFile(), List.of(
+                "spotify.access_token=" + legacyEncrypt(accessToken),
+                "spotify.refresh_token=" + legacyEncrypt(refreshToken)), StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    void readsLegacyTokens() throws Exception {
+        writeLegacyConfig("legacy-access", "legacy-refresh");
+        
+        ConfigManager configManager = open();
+        
+        assertEquals("legacy-access", configManager.getSpotifyAccessToken());
+        assertEquals("legacy-refresh", configManager.getSpotifyRefreshToken());
+    }
+    
+    @Test
+    void reEncryptsLegacyTokensWithGcmOnTheNextSave() throws Exception {
+        writeLegacyConfig("legacy-access", "legacy-refresh");
+        ConfigManager configManager = open();
+        AtomicInteger changes = new AtomicInteger();
+        configManager.setChangeListener(changes::incrementAndGet);
+        
+        configManager.getSpotifyAccessToken();
+        configManager.getSpotifyRefreshToken();
+        assertEquals(2, changes.get());
+        assertTrue(TokenCipher.isLegacy(stored().getProperty("spotify.access_token")));
+        
+        configManager.saveConfig();
+        
+        Properties stored = stored();
+        assertFalse(TokenCipher.isLegacy(stored.getProperty("spotify.access_token")));
+        assertFalse(TokenCipher.isLegacy(stored.getProperty("spotify.refresh_token")));
+        ConfigManager reopened = open();
+        assertEquals("legacy-access", reopened.getSpotifyAccessToken());
+        assertEquals("legacy-refresh", reopened.getSpotifyRefreshToken());
+    }
+    
+    @Test
+    void readingGcmTokensDoesNotMarkTheConfigChanged() throws IOException {
+        ConfigManager first = open();
+        first.setSpotifyAccessToken("access");
+        first.saveConfig();
+        ConfigManager configManager = open();
+        AtomicInteger changes = new AtomicInteger();
+        configManager.setChangeListener(changes::incrementAndGet);
+        
+        assertEquals("access", configManager.getSpotifyAccessToken());
+        
+        assertEquals(0, changes.get());
+    }
+    
+    @Test
+    void encryptsANewTokenOnlyWhenSaving() throws IOException {
+        ConfigManager configManager = open();
+        configManager.setSpotifyAccessToken("fresh-access");
+        configManager.saveConfig();
+        String before = stored().getProperty("spotify.access_token");
+        
+        configManager.setSpotifyAccessToken("newer-access");
+        assertEquals("newer-access", configManager.getSpotifyAccessToken());
+        assertEquals(before, stored().getProperty("spotify.access_token"));
+        configManager.saveConfig();
+        
+        String after = stored().getProperty("spotify.access_token");
+        assertNotEquals(before, after);
+        assertFalse(TokenCipher.isLegacy(after));
+        assertFalse(new String(Files.readAllBytes(configFile()), StandardCharsets.ISO_8859_1).contains("newer-access"));
+        assertEquals("newer-access", open().getSpotifyAccessToken());
+    }
+    
+    @Test
+    void keepsTheCiphertextOfAnUnchangedToken() throws IOException {
+        ConfigManager configManager = open();
+        configManager.setSpotifyAccessToken("access");
+        configManager.setSpotifyRefreshToken("refresh");
+        configManager.saveConfig();
+        Properties before = stored();
+        
+        configManager.setTokenExpiresAt(42);
+        configManager.saveConfig();
+        
+        Properties after = stored();
+        assertEquals("42", after.getProperty("spotify.token_expires_at"));
+        assertEquals(before.getProperty("spotify.access_token"), after.getProperty("spotify.access_token"));
+        assertEquals(before.getProperty("spotify.refresh_token"), after.getProperty("spotify.refresh_token"));
+    }
+    
+    @Test
+    void skipsTheWriteWhenNothingChanged() throws IOException {
+        ConfigManager configManager = open();
+        configManager.setSpotifyAccessToken("access");
+        configManager.saveConfig();
+        Files.delete(configFile());
+        
+        configManager.saveConfig();
+        
+        assertFalse(Files.exists(configFile()));
+    }
+    
+    @Test
+    void readsAnUndecryptableTokenAsEmpty() throws IOException {
+        Files.createDirectories(directory);
+        Files.write(configFile(), List.of("spotify.access_token=v2:AAAAAAAAAAAAAAAAAAAAAAAAAAAA"),
+                StandardCharsets.UTF_8);
+        
+        assertEquals("", open().getSpotifyAccessToken());
+    }
+}
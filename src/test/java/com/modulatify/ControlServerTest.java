@@ -0,0 +1,143 @@
+package com.modulatify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ControlServerTest {
+    private static final String TOKEN = "s3cret-control-token";
+    
+    @TempDir
+    Path directory;
+    
+    private final OkHttpClient client = new OkHttpClient();
+    private SpotifyController spotifyController;
+    private CommandDispatcher commandDispatcher;
+    private LatencyMetrics latencyMetrics;
+    private ControlServer server;
+    
+    @BeforeEach
+    void startServer() throws IOException {
+        ConfigManager configManager = new ConfigManager(directory);
+        // Nothing listens on port 9; these tests never get as far as Spotify.
+        spotifyController = new SpotifyController(configManager, "http://127.0.0.1:9/v1", "http://127.0.0.1:9");
+        latencyMetrics = new LatencyMetrics();
+        commandDispatcher = new CommandDispatcher(spotifyController, configManager, latencyMetrics);
+        server = new ControlServer(commandDispatcher, spotifyController, latencyMetrics, 0, TOKEN);
+        server.start();
+    }
+    
+    @AfterEach
+    void stopServer() {
+        server.stop();
+        commandDispatcher.shutdown();
+        spotifyController.shutdown();
+    }
+    
+    private Request.Builder request(String path) {
+        return new Request.Builder().url("http://127.0.0.1:" + server.getPort() + path);
+    }
+    
+    private Request.Builder authorized(String path) {
+        return request(path).header("Authorization", "Bearer " + TOKEN);
+    }
+    
+    private int status(Request.Builder request) throws IOException {
+        try (Response response = client.newCall(request.build()).execute()) {
+            return response.code();
+        }
+    }
+    
+    private String body(Request.Builder request) throws IOException {
+        try (Response response = client.newCall(request.build()).execute()) {
+            return response.body().string();
+        }
+    }
+    
+    @Test
+    void acceptsTheControlToken() throws IOException {
+        assertEquals(200, status(authorized("/status")));
+        assertEquals(200, status(authorized("/metrics")));
+    }
+    
+    @Test
+    void rejectsAMissingToken() throws IOException {
+        assertEquals(403, status(request("/status")));
+        assertTrue(body(request("/status")).contains("Missing or wrong control token"));
+    }
+    
+    @Test
+    void rejectsAWrongToken() throws IOException {
+        String sameLength = TOKEN.substring(0, TOKEN.length() - 1) + "X";
+        
+        assertEquals(403, status(request("/status").header("Authorization", "Bearer " + sameLength)));
+        assertEquals(403, status(request("/status").header("Authorization", "Bearer " + TOKEN + "X")));
+        assertEquals(403, status(request("/status").header("Authorization", "Bearer ")));
+    }
+    
+    @Test
+    void requiresTheBearerScheme() throws IOException {
+        assertEquals(403, status(request("/status").header("Authorization", TOKEN)));
+        assertEquals(403, status(request("/status").header("Authorization", "Basic " + TOKEN)));
+    }
+    
+    @Test
+    void rejectsBrowserRequestsEvenWithTheToken() throws IOException {
+        Request.Builder request = authorized("/status").header("Origin", "https://attacker.example");
+        
+        assertEquals(403, status(request));
+        assertTrue(body(request).contains("Browser requests are not accepted"));
+    }
+    
+    @Test
+    void rejectsForeignHostHeaders() throws IOException {
+        assertEquals(403, status(authorized("/status").header("Host", "attacker.example")));
+        assertEquals(403, status(authorized("/status").header("Host", "attacker.example:" + server.getPort())));
+        assertEquals(403, status(authorized("/status").header("Host", "localhost.attacker.example")));
+    }
+    
+    @Test
+    void acceptsLoopbackHostHeaders() throws IOException {
+        int port = server.getPort();
+        
+        assertEquals(200, status(authorized("/status").header("Host", "localhost:" + port)));
+        assertEquals(200, status(authorized("/status").header("Host", "127.0.0.1")));
+        assertEquals(200, status(authorized("/status").header("Host", "[::1]:" + port)));
+    }
+    
+    @Test
+    void checksTheCallerBeforeTheEndpoint() throws IOException {
+        RequestBody batch = RequestBody.create("skip_forward", MediaType.get("text/plain"));
+        
+        assertEquals(403, status(request("/commands").post(batch)));
+        assertEquals(403, status(request("/nowhere")));
+        assertEquals(404, status(authorized("/nowhere")));
+    }
+    
+    @Test
+    void rejectsABatchWithAnUnknownAction() throws IOException {
+        RequestBody batch = RequestBody.create("skip_forward, rewind", MediaType.get("text/plain"));
+        
+        assertEquals(400, status(authorized("/commands").post(batch)));
+    }
+    
+    @Test
+    void refusesToStartWithoutAToken() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ControlServer(commandDispatcher, spotifyController, latencyMetrics, 0, ""));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ControlServer(commandDispatcher, spotifyController, latencyMetrics, 0, null));
+    }
+}
@@ -0,0 +1,179 @@
+package com.modulatify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class HotkeyMatcherTest {
+    private static final int CTRL_ALT = NativeKeyEvent.CTRL_MASK | NativeKeyEvent.ALT_MASK;
+    
+    private static final Map<String, Integer> KEY_CODES = new HashMap<>();
+    
+    static {
+        KEY_CODES.put("M", NativeKeyEvent.VC_M);
+        KEY_CODES.put("O", NativeKeyEvent.VC_O);
+        KEY_CODES.put("P", NativeKeyEvent.VC_P);
+        KEY_CODES.put("V", NativeKeyEvent.VC_V);
+        KEY_CODES.put("5", NativeKeyEvent.VC_5);
+        KEY_CODES.put("PAGE_UP", NativeKeyEvent.VC_PAGE_UP);
+    }
+    
+    private static HotkeyMatcher compile(String... hotkeys) {
+        return HotkeyMatcher.compile(hotkeys, KEY_CODES);
+    }
+    
+    // Feeds strokes of {modifiers, keyCode} from the root; the action reached, or NO_MATCH.
+    private static int run(HotkeyMatcher matcher, int[]... strokes) {
+        int state = HotkeyMatcher.ROOT;
+        for (int[] stroke : strokes) {
+            state = matcher.transition(state, stroke[0], stroke[1]);
+            if (state == HotkeyMatcher.NO_STATE) {
+                return HotkeyMatcher.NO_MATCH;
+            }
+        }
+        return matcher.action(state);
+    }
+    
+    private static int[] stroke(int modifiers, int keyCode) {
+        return new int[] {modifiers, keyCode};
+    }
+    
+    @Test
+    void matchesConfiguredHotkeyByIndex() {
+        HotkeyMatcher matcher = compile("Ctrl+Alt+O", "Ctrl+Alt+P");
+        
+        assertEquals(0, matcher.match(CTRL_ALT, NativeKeyEvent.VC_O));
+        assertEquals(1, matcher.match(CTRL_ALT, NativeKeyEvent.VC_P));
+    }
+    
+    @Test
+    void requiresExactModifiers() {
+        HotkeyMatcher matcher = compile("Ctrl+Alt+O");
+        
+        assertEquals(HotkeyMatcher.NO_MATCH, matcher.match(NativeKeyEvent.CTRL_MASK, NativeKeyEvent.VC_O));
+        assertEquals(HotkeyMatcher.NO_MATCH, matcher.match(CTRL_ALT | NativeKeyEvent.SHIFT_MASK, NativeKeyEvent.VC_O));
+        assertEquals(HotkeyMatcher.NO_MATCH, matcher.match(0, NativeKeyEvent.VC_O));
+    }
+    
+    @Test
+    void ignoresModifierOrderCaseAndSpacesInKeyNames() {
+        HotkeyMatcher matcher = compile(" alt + CTRL + page up ");
+        
+        assertEquals(0, matcher.match(CTRL_ALT, NativeKeyEvent.VC_PAGE_UP));
+    }
+    
+    @Test
+    void missesUnconfiguredKeys() {
+        HotkeyMatcher matcher = compile("Ctrl+Alt+O");
+        
+        assertEquals(HotkeyMatcher.NO_MATCH, matcher.match(CTRL_ALT, NativeKeyEvent.VC_P));
+        assertEquals(HotkeyMatcher.NO_MATCH, matcher.match(CTRL_ALT, NativeKeyEvent.VC_Q));
+    }
+    
+    @Test
+    void skipsEmptyAndUnparseableEntriesWithoutShiftingIndexes() {
+        HotkeyMatcher matcher = compile("", null, "Hyper+O", "Ctrl+Alt+Nope", "Ctrl+Alt+P");
+        
+        assertEquals(4, matcher.match(CTRL_ALT, NativeKeyEvent.VC_P));
+        assertEquals(HotkeyMatcher.NO_MATCH, matcher.match(CTRL_ALT, NativeKeyEvent.VC_O));
+    }
+    
+    @Test
+    void keepsTheFirstOfTwoIdenticalHotkeys() {
+        HotkeyMatcher matcher = compile("Ctrl+Alt+O", "ctrl+alt+o");
+        
+        assertEquals(0, matcher.match(CTRL_ALT, NativeKeyEvent.VC_O));
+    }
+    
+    @Test
+    void handlesManyHotkeysInOneTable() {
+        Map<String, Integer> keyCodes = new HashMap<>();
+        String[] hotkeys = new String[64];
+        for (int i = 0; i < hotkeys.length; i++) {
+            keyCodes.put("K" + i, 0x1000 + i);
+            hotkeys[i] = (i % 2 == 0 ? "Ctrl+" : "Alt+") + "K" + i;
+        }
+        HotkeyMatcher matcher = HotkeyMatcher.compile(hotkeys, keyCodes);
+        
+        for (int i = 0; i < hotkeys.length; i++) {
+            int modifiers = i % 2 == 0 ? NativeKeyEvent.CTRL_MASK : NativeKeyEvent.ALT_MASK;
+            assertEquals(i, matcher.match(modifiers, 0x1000 + i));
+            assertEquals(HotkeyMatcher.NO_MATCH, matcher.match(CTRL_ALT, 0x1000 + i));
+        }
+    }
+    
+    @Test
+    void walksAChordStrokeByStroke() {
+        HotkeyMatcher matcher = compile("Ctrl+Alt+M, V, 5");
+        
+        int first = matcher.transition(HotkeyMatcher.ROOT, CTRL_ALT, NativeKeyEvent.VC_M);
+        int second = matcher.transition(first, 0, NativeKeyEvent.VC_V);
+        int third = matcher.transition(second, 0, NativeKeyEvent.VC_5);
+        
+        assertEquals(HotkeyMatcher.NO_MATCH, matcher.action(first));
+        assertEquals(HotkeyMatcher.NO_MATCH, matcher.action(second));
+        assertEquals(0, matcher.action(third));
+        // The first stroke of a chord is not a hotkey on its own.
+        assertEquals(HotkeyMatcher.NO_MATCH, matcher.match(CTRL_ALT, NativeKeyEvent.VC_M));
+    }
+    
+    @Test
+    void breaksAChordOnAnUnexpectedStroke() {
+        HotkeyMatcher matcher = compile("Ctrl+Alt+M, V");
+        int first = matcher.transition(HotkeyMatcher.ROOT, CTRL_ALT, NativeKeyEvent.VC_M);
+        
+        assertEquals(HotkeyMatcher.NO_STATE, matcher.transition(first, 0, NativeKeyEvent.VC_P));
+        assertEquals(HotkeyMatcher.NO_STATE, matcher.transition(first, NativeKeyEvent.SHIFT_MASK, NativeKeyEvent.VC_V));
+        assertEquals(HotkeyMatcher.NO_STATE, matcher.transition(HotkeyMatcher.ROOT, 0, NativeKeyEvent.VC_V));
+    }
+    
+    @Test
+    void sharesAPrefixBetweenSiblingChords() {
+        HotkeyMatcher matcher = compile("Ctrl+Alt+M, V", "Ctrl+Alt+M, P", "Ctrl+Alt+O");
+        
+        assertEquals(0, run(matcher, stroke(CTRL_ALT, NativeKeyEvent.VC_M), stroke(0, NativeKeyEvent.VC_V)));
+        assertEquals(1, run(matcher, stroke(CTRL_ALT, NativeKeyEvent.VC_M), stroke(0, NativeKeyEvent.VC_P)));
+        assertEquals(2, matcher.match(CTRL_ALT, NativeKeyEvent.VC_O));
+    }
+    
+    @Test
+    void rejectsAChordWhosePrefixIsAHotkey() {
+        HotkeyMatcher matcher = compile("Ctrl+Alt+M", "Ctrl+Alt+M, V");
+        
+        assertEquals(0, matcher.match(CTRL_ALT, NativeKeyEvent.VC_M));
+        int state = matcher.transition(HotkeyMatcher.ROOT, CTRL_ALT, NativeKeyEvent.VC_M);
+        assertEquals(HotkeyMatcher.NO_STATE, matcher.transition(state, 0, NativeKeyEvent.VC_V));
+    }
+    
+    @Test
+    void rejectsAHotkeyThatIsThePrefixOfAChord() {
+        HotkeyMatcher matcher = compile("Ctrl+Alt+M, V", "Ctrl+Alt+M");
+        
+        assertEquals(HotkeyMatcher.NO_MATCH, matcher.match(CTRL_ALT, NativeKeyEvent.VC_M));
+        assertEquals(0, run(matcher, stroke(CTRL_ALT, NativeKeyEvent.VC_M), stroke(0, NativeKeyEvent.VC_V)));
+    }
+    
+    @Test
+    void rejectsChordsThatShadowEachOther() {
+        HotkeyMatcher longerFirst = compile("Ctrl+Alt+M, V, 5", "Ctrl+Alt+M, V");
+        HotkeyMatcher shorterFirst = compile("Ctrl+Alt+M, V", "Ctrl+Alt+M, V, 5");
+        
+        assertEquals(0, run(longerFirst, stroke(CTRL_ALT, NativeKeyEvent.VC_M), stroke(0, NativeKeyEvent.VC_V),
+                stroke(0, NativeKeyEvent.VC_5)));
+        assertEquals(HotkeyMatcher.NO_MATCH, run(longerFirst, stroke(CTRL_ALT, NativeKeyEvent.VC_M),
+                stroke(0, NativeKeyEvent.VC_V)));
+        assertEquals(0, run(shorterFirst, stroke(CTRL_ALT, NativeKeyEvent.VC_M), stroke(0, NativeKeyEvent.VC_V)));
+        assertEquals(HotkeyMatcher.NO_MATCH, run(shorterFirst, stroke(CTRL_ALT, NativeKeyEvent.VC_M),
+                stroke(0, NativeKeyEvent.VC_V), stroke(0, NativeKeyEvent.VC_5)));
+    }
+    
+    @Test
+    void rejectsChordsWithAnEmptyStroke() {
+        HotkeyMatcher matcher = compile("Ctrl+Alt+M, , V", "Ctrl+Alt+M,");
+        
+        assertEquals(HotkeyMatcher.NO_STATE, matcher.transition(HotkeyMatcher.ROOT, CTRL_ALT, NativeKeyEvent.VC_M));
+    }
+}
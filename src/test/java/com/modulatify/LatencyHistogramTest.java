@@ -0,0 +1,112 @@
+package com.modulatify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+    @Test
+    void isEmptyBeforeAnyRecording() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.getPercentileMicros(0.99));
+    }
+    
+    @Test
+    void tracksCountSumAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        
+        histogram.recordNanos(1_500);
+        histogram.recordNanos(250_000);
+        histogram.recordNanos(40_000);
+        
+        assertEquals(3, histogram.getCount());
+        assertEquals(291, histogram.getSumMicros());
+        assertEquals(250, histogram.getMaxMicros());
+    }
+    
+    @Test
+    void isExactBelowSixtyFourMicros() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 50; micros++) {
+            histogram.recordNanos(micros * 1_000L);
+        }
+        
+        assertEquals(25, histogram.getPercentileMicros(0.50));
+        assertEquals(45, histogram.getPercentileMicros(0.90));
+        assertEquals(50, histogram.getPercentileMicros(1.0));
+    }
+    
+    @Test
+    void staysWithinThreePercentAcrossTheRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 1_000_000; micros++) {
+            histogram.recordNanos(micros * 1_000L);
+        }
+        
+        for (double quantile : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            long expected = (long) Math.ceil(quantile * 1_000_000);
+            long actual = histogram.getPercentileMicros(quantile);
+            assertTrue(actual >= expected && actual <= expected * 1.032, quantile + ": " + actual);
+        }
+    }
+    
+    @Test
+    void capsPercentilesAtTheObservedMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        
+        histogram.recordNanos(1_000_000);
+        
+        assertEquals(1_000, histogram.getPercentileMicros(0.5));
+        assertEquals(1_000, histogram.getPercentileMicros(0.999));
+    }
+    
+    @Test
+    void recordsNegativeDurationsAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        
+        histogram.recordNanos(-5_000);
+        
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getSumMicros());
+        assertEquals(0, histogram.getPercentileMicros(0.5));
+    }
+    
+    @Test
+    void acceptsDurationsBeyondTheTopBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        
+        histogram.recordNanos(Long.MAX_VALUE);
+        
+        assertEquals(1, histogram.getCount());
+        assertEquals(Long.MAX_VALUE / 1_000, histogram.getMaxMicros());
+        assertTrue(histogram.getPercentileMicros(0.5) > 0);
+    }
+    
+    @Test
+    void countsConcurrentRecordings() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 1; i <= 10_000; i++) {
+                    histogram.recordNanos(i * 1_000L);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(4 * (10_000L * 10_001 / 2), histogram.getSumMicros());
+        assertEquals(10_000, histogram.getMaxMicros());
+    }
+}
@@ -0,0 +1,114 @@
+package com.modulatify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+// Refill rates are chosen so that the few milliseconds a test takes cannot refill a whole token.
+class RateLimiterTest {
+    @Test
+    void allowsABurstUpToCapacity() {
+        RateLimiter limiter = new RateLimiter(3, 0.5);
+        
+        assertTrue(limiter.tryAcquire(1));
+        assertTrue(limiter.tryAcquire(2));
+        assertFalse(limiter.tryAcquire(1));
+    }
+    
+    @Test
+    void reportsTheRefillTimeForMissingPermits() {
+        RateLimiter limiter = new RateLimiter(2, 0.5);
+        assertEquals(0, limiter.delayMillis(2));
+        
+        assertTrue(limiter.tryAcquire(2));
+        long delayMs = limiter.delayMillis(1);
+        assertTrue(delayMs > 1_900 && delayMs <= 2_000, "delay " + delayMs);
+    }
+    
+    @Test
+    void holdsEveryRequestForRetryAfter() {
+        RateLimiter limiter = new RateLimiter(10, 1_000);
+        
+        limiter.onRateLimited("2");
+        
+        assertFalse(limiter.tryAcquire(1));
+        long delayMs = limiter.delayMillis(1);
+        assertTrue(delayMs > 1_900 && delayMs <= 2_000, "delay " + delayMs);
+        assertEquals("Rate limited by Spotify, presses delayed for 2s", limiter.getStatus());
+    }
+    
+    @Test
+    void fallsBackToOneSecondForAMissingOrUnparseableRetryAfter() {
+        for (String header : new String[] {null, "soon", "0"}) {
+            RateLimiter limiter = new RateLimiter(10, 1_000);
+            
+            limiter.onRateLimited(header);
+            
+            long delayMs = limiter.delayMillis(1);
+            assertTrue(delayMs > 900 && delayMs <= 1_000, header + ": delay " + delayMs);
+        }
+    }
+    
+    @Test
+    void halvesTheSustainedRateOnEach429() {
+        RateLimiter limiter = new RateLimiter(1, 2);
+        assertTrue(limiter.tryAcquire(1));
+        long fullRateMs = limiter.delayMillis(1);
+        
+        limiter.onRateLimited("1");
+        limiter.onRateLimited("1");
+        
+        // A token now takes four times as long to refill, which outlasts the one-second Retry-After.
+        long throttledMs = limiter.delayMillis(1);
+        assertTrue(fullRateMs > 450 && fullRateMs <= 500, "full rate delay " + fullRateMs);
+        assertTrue(throttledMs > 1_900 && throttledMs <= 2_000, "throttled delay " + throttledMs);
+    }
+    
+    @Test
+    void acquireGivesUpAtOnceWhenTheWaitIsTooLong() {
+        RateLimiter limiter = new RateLimiter(10, 1_000);
+        limiter.onRateLimited("5");
+        
+        long start = System.nanoTime();
+        assertFalse(limiter.acquire(1, 100));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+    }
+    
+    @Test
+    void acquireWaitsForAShortRefill() {
+        RateLimiter limiter = new RateLimiter(1, 50);
+        assertTrue(limiter.tryAcquire(1));
+        
+        assertTrue(limiter.acquire(1, 500));
+    }
+    
+    @Test
+    void hasNoStatusWhileUnthrottled() {
+        assertNull(new RateLimiter(10, 10).getStatus());
+    }
+    
+    @Test
+    void notifiesWhenThrottledAndWhenCleared() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(10, 1_000);
+        List<String> statuses = new ArrayList<>();
+        limiter.setStatusListener(statuses::add);
+        
+        limiter.onRateLimited("1");
+        limiter.onSuccess();
+        assertEquals(1, statuses.size());
+        
+        Thread.sleep(1_100);
+        limiter.onSuccess();
+        limiter.onSuccess();
+        
+        assertEquals(2, statuses.size());
+        assertEquals("Rate limited by Spotify, presses delayed for 1s", statuses.get(0));
+        assertNull(statuses.get(1));
+    }
+}
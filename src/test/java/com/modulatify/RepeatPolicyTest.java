@@ -0,0 +1,26 @@
+package com.modulatify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class RepeatPolicyTest {
+    @Test
+    void parsesNamesIgnoringCaseAndSpaces() {
+        assertEquals(RepeatPolicy.EVERY, RepeatPolicy.fromConfig(" every ", RepeatPolicy.RAMP));
+        assertEquals(RepeatPolicy.FIRE_ONCE, RepeatPolicy.fromConfig("Fire_Once", RepeatPolicy.RAMP));
+        assertEquals(RepeatPolicy.RAMP, RepeatPolicy.fromConfig("ramp", RepeatPolicy.EVERY));
+    }
+    
+    @Test
+    void readsTheLegacyIgnoreAsFireOnce() {
+        assertEquals(RepeatPolicy.FIRE_ONCE, RepeatPolicy.fromConfig("ignore", RepeatPolicy.RAMP));
+    }
+    
+    @Test
+    void fallsBackToTheDefaultForMissingOrUnknownValues() {
+        assertEquals(RepeatPolicy.RAMP, RepeatPolicy.fromConfig(null, RepeatPolicy.RAMP));
+        assertEquals(RepeatPolicy.RAMP, RepeatPolicy.fromConfig("  ", RepeatPolicy.RAMP));
+        assertEquals(RepeatPolicy.RAMP, RepeatPolicy.fromConfig("sometimes", RepeatPolicy.RAMP));
+    }
+}
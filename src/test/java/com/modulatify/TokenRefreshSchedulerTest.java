@@ -0,0 +1,193 @@
+package com.modulatify;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TokenRefreshSchedulerTest {
+    private static final long HOUR_MS = 60 * 60_000L;
+    private static final long MARGIN_MS = 5 * 60_000L;
+    
+    @TempDir
+    Path directory;
+    
+    private ConfigManager configManager;
+    private TokenRefreshScheduler scheduler;
+    
+    @BeforeEach
+    void createConfig() {
+        configManager = new ConfigManager(directory);
+        configManager.setSpotifyAccessToken("access-0");
+        configManager.setSpotifyRefreshToken("refresh");
+    }
+    
+    @AfterEach
+    void stopScheduler() {
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+    }
+    
+    private void expireIn(long millis) {
+        configManager.setTokenExpiresAt(System.currentTimeMillis() + millis);
+    }
+    
+    private TokenRefreshScheduler start(BooleanSupplier refreshAction) {
+        scheduler = new TokenRefreshScheduler(configManager, refreshAction, 50, 200);
+        scheduler.start();
+        return scheduler;
+    }
+    
+    // Stores a new token valid for an hour, as SpotifyController.refreshAccessToken does.
+    private boolean issueToken(String accessToken) {
+        configManager.setSpotifyAccessToken(accessToken);
+        expireIn(HOUR_MS);
+        return true;
+    }
+    
+    @Test
+    void isFreshUntilTheSkewBeforeExpiry() {
+        expireIn(HOUR_MS);
+        assertTrue(start(() -> false).isTokenFresh());
+        
+        expireIn(5_000);
+        scheduler.onTokenUpdated();
+        
+        assertFalse(scheduler.isTokenFresh());
+    }
+    
+    @Test
+    void isNotFreshWithoutAnAccessToken() {
+        expireIn(HOUR_MS);
+        configManager.setSpotifyAccessToken("");
+        
+        assertFalse(start(() -> false).isTokenFresh());
+    }
+    
+    @Test
+    void checksTheWallClockForTimeSpentSuspended() {
+        expireIn(HOUR_MS);
+        start(() -> false);
+        
+        // The monotonic clock still counts an hour; the wall clock says the token has expired.
+        configManager.setTokenExpiresAt(System.currentTimeMillis() - 1_000);
+        
+        assertFalse(scheduler.isTokenFresh());
+    }
+    
+    @Test
+    void refreshesTheMarginAheadOfExpiry() throws InterruptedException {
+        CountDownLatch refreshed = new CountDownLatch(1);
+        expireIn(MARGIN_MS + 200);
+        
+        start(() -> {
+            refreshed.countDown();
+            return issueToken("access-1");
+        });
+        
+        assertTrue(refreshed.await(2, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    void concurrentCallersShareOneRefresh() throws Exception {
+        expireIn(HOUR_MS);
+        AtomicInteger refreshes = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        start(() -> {
+            refreshes.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                return false;
+            }
+            return issueToken("access-1");
+        });
+        scheduler.invalidate("access-0");
+        
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(callers.submit(() -> scheduler.awaitValidToken(2_000)));
+        }
+        Thread.sleep(100);
+        release.countDown();
+        
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        callers.shutdown();
+        assertEquals(1, refreshes.get());
+        assertTrue(scheduler.isTokenFresh());
+    }
+    
+    @Test
+    void ignoresA401ForATokenAlreadyReplaced() {
+        expireIn(HOUR_MS);
+        start(() -> false);
+        
+        scheduler.invalidate("access-old");
+        assertTrue(scheduler.isTokenFresh());
+        
+        scheduler.invalidate("access-0");
+        assertFalse(scheduler.isTokenFresh());
+    }
+    
+    @Test
+    void backsOffExponentiallyUpToTheMaximum() throws InterruptedException {
+        expireIn(-1_000);
+        List<Long> attempts = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch fiveAttempts = new CountDownLatch(5);
+        
+        start(() -> {
+            attempts.add(System.nanoTime());
+            fiveAttempts.countDown();
+            return false;
+        });
+        
+        assertTrue(fiveAttempts.await(3, TimeUnit.SECONDS));
+        long[] gaps = new long[4];
+        for (int i = 0; i < gaps.length; i++) {
+            gaps[i] = TimeUnit.NANOSECONDS.toMillis(attempts.get(i + 1) - attempts.get(i));
+        }
+        assertTrue(gaps[0] >= 50, "first retry after " + gaps[0]);
+        assertTrue(gaps[1] >= 100, "second retry after " + gaps[1]);
+        assertTrue(gaps[2] >= 200, "third retry after " + gaps[2]);
+        assertTrue(gaps[3] >= 200 && gaps[3] < 350, "fourth retry after " + gaps[3]);
+    }
+    
+    @Test
+    void stopsRetryingOnceARefreshSucceeds() throws InterruptedException {
+        expireIn(-1_000);
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch refreshed = new CountDownLatch(1);
+        start(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                return false;
+            }
+            refreshed.countDown();
+            return issueToken("access-1");
+        });
+        
+        assertTrue(refreshed.await(2, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        
+        assertEquals(3, attempts.get());
+        assertTrue(scheduler.isTokenFresh());
+    }
+}